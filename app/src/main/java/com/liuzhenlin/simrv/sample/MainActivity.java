@@ -25,6 +25,12 @@ import com.liuzhenlin.simrv.SlidingItemMenuRecyclerView;
  * @author 刘振林
  */
 public class MainActivity extends AppCompatActivity {
+    /** The number of items to show initially, which is 5 if not specified. */
+    public static final String EXTRA_ITEM_COUNT = "itemCount";
+
+    /** Whether to open the first items in a staggered wave on start, which is the default. */
+    public static final String EXTRA_OPEN_ITEMS_ON_START = "openItemsOnStart";
+
     @Override
     protected void onCreate(Bundle savedInstanceState) {
         super.onCreate(savedInstanceState);
@@ -37,7 +43,7 @@ public class MainActivity extends AppCompatActivity {
 
         final SlidingItemMenuRecyclerView simrv = srl.findViewById(R.id.simrv);
         simrv.setLayoutManager(new LinearLayoutManager(this));
-        simrv.setAdapter(new RecyclerAdapter());
+        simrv.setAdapter(new RecyclerAdapter(getIntent().getIntExtra(EXTRA_ITEM_COUNT, 5)));
         simrv.addItemDecoration(new DividerItemDecoration(this, DividerItemDecoration.VERTICAL));
 
         srl.setOnRefreshListener(new SwipeRefreshLayout.OnRefreshListener() {
@@ -49,34 +55,29 @@ public class MainActivity extends AppCompatActivity {
                 adapter.notifyItemRangeInserted(old, 2);
 
                 srl.setRefreshing(false);
-                simrv.setItemDraggable(true);
             };
 
             @Override
             public void onRefresh() {
-                simrv.releaseItemView(false);
-                simrv.setItemDraggable(false);
-
                 srl.postDelayed(refreshListRunnable, 2000);
             }
         });
 
+        if (!getIntent().getBooleanExtra(EXTRA_OPEN_ITEMS_ON_START, true)) {
+            return;
+        }
         final int duration = simrv.getItemScrollDuration();
+        // Opens the first rows that exist, so that the last one opened is left open.
+        final int[] positions = new int[Math.min(simrv.getAdapter().getItemCount(), 6)];
+        if (positions.length == 0) return;
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = i;
+        }
         simrv.post(() -> {
-            simrv.openItemAtPosition(0);
-            simrv.postDelayed(() -> {
-                simrv.openItemAtPosition(1);
-                simrv.postDelayed(() -> {
-                    simrv.openItemAtPosition(2);
-                    simrv.postDelayed(() -> {
-                        simrv.openItemAtPosition(3);
-                        simrv.postDelayed(() -> {
-                            simrv.openItemAtPosition(4);
-                            simrv.postDelayed(() -> simrv.openItemAtPosition(5), duration);
-                        }, duration);
-                    }, duration);
-                }, duration);
-            }, duration);
+            simrv.openItemsAtPositions(positions, true, duration / 2);
+            simrv.postDelayed(
+                    () -> simrv.releaseAllItemViewsExcept(positions[positions.length - 1], true),
+                    duration * positions.length / 2 + duration);
         });
     }
 
@@ -102,9 +103,10 @@ public class MainActivity extends AppCompatActivity {
 
     private final class RecyclerAdapter extends RecyclerView.Adapter<RecyclerAdapter.ViewHolder>
             implements View.OnClickListener {
-        int itemCount = 5;
+        int itemCount;
 
-        RecyclerAdapter() {
+        RecyclerAdapter(int itemCount) {
+            this.itemCount = itemCount;
         }
 
         @NonNull
@@ -0,0 +1,138 @@
+package com.liuzhenlin.simrv;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.graphics.Rect;
+import android.graphics.drawable.Drawable;
+import android.graphics.drawable.GradientDrawable;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.recyclerview.widget.RecyclerView;
+import androidx.test.annotation.UiThreadTest;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.liuzhenlin.simrv.reservation.TopWrappedDividerItemDecoration;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Compares the layout passes of a list of 10k rows decorated by
+ * {@link TopWrappedDividerItemDecoration}, which caches the divider size and only resolves
+ * the adapter position of the child at layout position 0 for the item offsets, against those
+ * decorated by an equivalent decoration reading the divider size and resolving the adapter
+ * position through the list for every child, as the former one used to.
+ */
+@RunWith(AndroidJUnit4.class)
+public class DividerDecorationBenchmark {
+    private static final int ITEM_COUNT = 10_000;
+
+    @Rule
+    public final BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private SlidingItemMenuRecyclerView mList;
+    private Drawable mDivider;
+    private final Rect mOffsets = new Rect();
+
+    @Before
+    @UiThreadTest
+    public void setUp() {
+        final Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        mList = SwipeFixtures.createLaidOutList(context, ITEM_COUNT);
+        mList.scrollToPosition(ITEM_COUNT / 2);
+        relayout();
+
+        final GradientDrawable divider = new GradientDrawable();
+        divider.setColor(Color.LTGRAY);
+        divider.setSize(SwipeFixtures.LIST_WIDTH, SwipeFixtures.dp(context, 1));
+        mDivider = divider;
+    }
+
+    private void relayout() {
+        final int width = SwipeFixtures.LIST_WIDTH;
+        final int height = SwipeFixtures.LIST_HEIGHT;
+        mList.measure(
+                View.MeasureSpec.makeMeasureSpec(width, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(height, View.MeasureSpec.EXACTLY));
+        mList.layout(0, 0, width, height);
+    }
+
+    private TopWrappedDividerItemDecoration createDecoration() {
+        final TopWrappedDividerItemDecoration decoration = new TopWrappedDividerItemDecoration(
+                mList.getContext(), TopWrappedDividerItemDecoration.VERTICAL);
+        decoration.setDivider(mDivider);
+        return decoration;
+    }
+
+    @Test
+    @UiThreadTest
+    public void layoutPass_cachedOffsets() {
+        mList.addItemDecoration(createDecoration());
+        benchmarkLayoutPasses();
+    }
+
+    @Test
+    @UiThreadTest
+    public void layoutPass_positionLookupOffsets() {
+        mList.addItemDecoration(new PositionLookupDecoration(mDivider));
+        benchmarkLayoutPasses();
+    }
+
+    private void benchmarkLayoutPasses() {
+        final BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            // Makes the item offsets of all the children be computed again.
+            mList.invalidateItemDecorations();
+            relayout();
+        }
+    }
+
+    @Test
+    @UiThreadTest
+    public void getItemOffsets_cached() {
+        benchmarkGetItemOffsets(createDecoration());
+    }
+
+    @Test
+    @UiThreadTest
+    public void getItemOffsets_positionLookup() {
+        benchmarkGetItemOffsets(new PositionLookupDecoration(mDivider));
+    }
+
+    private void benchmarkGetItemOffsets(RecyclerView.ItemDecoration decoration) {
+        final RecyclerView.State listState = new RecyclerView.State();
+        final BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            for (int i = mList.getChildCount() - 1; i >= 0; i--) {
+                decoration.getItemOffsets(mOffsets, mList.getChildAt(i), mList, listState);
+            }
+        }
+    }
+
+    /** Computes the same item offsets as TopWrappedDividerItemDecoration used to. */
+    private static final class PositionLookupDecoration extends RecyclerView.ItemDecoration {
+        private final Drawable mDivider;
+
+        PositionLookupDecoration(Drawable divider) {
+            mDivider = divider;
+        }
+
+        @Override
+        public void getItemOffsets(
+                @NonNull Rect outRect, @NonNull View view, @NonNull RecyclerView parent,
+                @NonNull RecyclerView.State state) {
+            final int dividerHeight = mDivider.getIntrinsicHeight();
+            if (parent.getChildAdapterPosition(view) == 0) {
+                outRect.set(0, dividerHeight, 0, dividerHeight);
+            } else {
+                outRect.set(0, 0, 0, dividerHeight);
+            }
+        }
+    }
+}
@@ -0,0 +1,58 @@
+package com.liuzhenlin.simrv;
+
+import android.view.animation.Interpolator;
+import android.view.animation.OvershootInterpolator;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Compares the cost of the lookup-table interpolators used by default with that of
+ * the analytic curves they are sampled from.
+ */
+@RunWith(AndroidJUnit4.class)
+public class InterpolatorBenchmark {
+    @Rule
+    public final BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    /** Not a multiple of any table step, so that inputs spread all over the tables */
+    private static final float INPUT_STEP = 0.0137f;
+
+    private void measure(Interpolator interpolator) {
+        float input = 0;
+        float sink = 0;
+        final BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            sink += interpolator.getInterpolation(input);
+            input += INPUT_STEP;
+            if (input > 1) input -= 1;
+        }
+        // Keeps the results alive so the calls cannot be optimized away.
+        if (sink == Float.MIN_VALUE) throw new AssertionError();
+    }
+
+    @Test
+    public void viscousFluid_analytic() {
+        measure(new ViscousFluidInterpolator(6.66f));
+    }
+
+    @Test
+    public void viscousFluid_lookupTable() {
+        measure(new LookupTableInterpolator(new ViscousFluidInterpolator(6.66f)));
+    }
+
+    @Test
+    public void overshoot_analytic() {
+        measure(new OvershootInterpolator(1.0f));
+    }
+
+    @Test
+    public void overshoot_lookupTable() {
+        measure(new LookupTableInterpolator(new OvershootInterpolator(1.0f)));
+    }
+}
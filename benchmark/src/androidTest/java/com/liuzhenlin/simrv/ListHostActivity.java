@@ -0,0 +1,10 @@
+package com.liuzhenlin.simrv;
+
+import android.app.Activity;
+
+/**
+ * An empty activity for the tests to attach their lists to, so that the lists are drawn and
+ * operated on in a window the same way as in an app.
+ */
+public class ListHostActivity extends Activity {
+}
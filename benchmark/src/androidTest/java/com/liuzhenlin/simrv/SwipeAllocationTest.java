@@ -0,0 +1,212 @@
+package com.liuzhenlin.simrv;
+
+import android.content.Context;
+import android.os.Debug;
+import android.os.SystemClock;
+import android.view.MotionEvent;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.test.annotation.UiThreadTest;
+import androidx.test.core.app.ActivityScenario;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Asserts that steady-state dragging and animating item views allocate nothing, by counting
+ * the allocations of the UI thread across every touch event of a scripted drag and across every
+ * animation frame, which is stepped manually rather than scheduled with the Choreographer.
+ * <p>
+ * The list is attached to the window of a {@link ListHostActivity} and drawn before any test,
+ * so that everything touched by the attached state of the views, such as the view tree observer
+ * and the invalidation up to the view root, is counted as well. Only the animation clock is
+ * driven by the tests.
+ * <p>
+ * Every test first runs the same operations once to warm up, as the swipe state of the item view,
+ * the pools of the framework and the like are allowed to be filled on the first swipe.
+ */
+@RunWith(AndroidJUnit4.class)
+@SuppressWarnings("deprecation") // The allocation counting of Debug, the same as BenchmarkRule's
+public class SwipeAllocationTest {
+    private static final long FRAME_INTERVAL_NANOS = 1_000_000_000L / 60;
+
+    /** Fails the test rather than looping forever if an animation never ends */
+    private static final int MAX_FRAME_COUNT = 600;
+
+    private ActivityScenario<ListHostActivity> mScenario;
+    private SlidingItemMenuRecyclerView mList;
+    private ItemAnimationDriver mDriver;
+    private ViewGroup mItemView;
+    private MotionEvent[] mDragEvents;
+
+    private long mFrameTimeNanos;
+
+    @Before
+    public void setUp() {
+        mScenario = ActivityScenario.launch(ListHostActivity.class);
+        mScenario.onActivity(new ActivityScenario.ActivityAction<ListHostActivity>() {
+            @Override
+            public void perform(ListHostActivity activity) {
+                mList = SwipeFixtures.createList(activity, 100);
+                activity.setContentView(mList);
+            }
+        });
+        // Lets the list be laid out and drawn in its window.
+        InstrumentationRegistry.getInstrumentation().waitForIdleSync();
+        mScenario.onActivity(new ActivityScenario.ActivityAction<ListHostActivity>() {
+            @Override
+            public void perform(ListHostActivity activity) {
+                setUpList(activity);
+            }
+        });
+        Debug.startAllocCounting();
+    }
+
+    /*synthetic*/ void setUpList(Context context) {
+        assertTrue("List not attached", mList.getWindowToken() != null);
+        mDriver = mList.getItemAnimationDriver();
+        // A frame callback posted to the Choreographer would never run to return its record
+        // to the pool while the UI thread is held, so that every frame would allocate one.
+        mDriver.setFramesSteppedManually(true);
+        mItemView = (ViewGroup) mList.getChildAt(0);
+        mDragEvents = SwipeFixtures.obtainDragEvents(mItemView, 16, SwipeFixtures.dp(context, 280));
+        // Covers the reporting of the metrics, which reuses one object for all the swipes.
+        mList.setOnItemSwipeMetricsListener(
+                new SlidingItemMenuRecyclerView.OnItemSwipeMetricsListener() {
+                    @Override
+                    public void onItemSwipeMetrics(
+                            @NonNull SlidingItemMenuRecyclerView parent,
+                            @NonNull ItemSwipeMetrics metrics) {
+                    }
+                });
+    }
+
+    @After
+    public void tearDown() {
+        Debug.stopAllocCounting();
+        mScenario.onActivity(new ActivityScenario.ActivityAction<ListHostActivity>() {
+            @Override
+            public void perform(ListHostActivity activity) {
+                mList.releaseItemView(false);
+                mDriver.setFramesSteppedManually(false);
+                SwipeFixtures.recycle(mDragEvents);
+            }
+        });
+        mScenario.close();
+    }
+
+    private static void resetAllocationCount() {
+        Debug.resetThreadAllocCount();
+    }
+
+    private static int getAllocationCount() {
+        return Debug.getThreadAllocCount();
+    }
+
+    @Test
+    @UiThreadTest
+    public void dragEvents_allocateNothing() {
+        drag(false);
+        mList.releaseItemView(false);
+
+        drag(true);
+    }
+
+    private void drag(boolean assertNoAllocations) {
+        for (int i = 0; i < mDragEvents.length; i++) {
+            resetAllocationCount();
+            mList.dispatchTouchEvent(mDragEvents[i]);
+            final int count = getAllocationCount();
+            if (assertNoAllocations) {
+                assertEquals("Allocations on touch event #" + i, 0, count);
+            }
+        }
+    }
+
+    @Test
+    @UiThreadTest
+    public void baseTranslateItemViewXBy_allocatesNothing() {
+        mList.childHasMenu(mItemView);
+        final ItemSwipeState state = SlidingItemMenuRecyclerView.getItemSwipeState(mItemView);
+        // Opens and closes the item view once, showing and hiding its menu.
+        mList.baseTranslateItemViewXBy(state, -state.itemMenuWidth);
+        mList.baseTranslateItemViewXBy(state, state.itemMenuWidth);
+
+        resetAllocationCount();
+        for (int i = 1; i <= state.itemMenuWidth; i++) {
+            mList.baseTranslateItemViewXBy(state, -1f);
+        }
+        for (int i = 1; i <= state.itemMenuWidth; i++) {
+            mList.baseTranslateItemViewXBy(state, 1f);
+        }
+        assertEquals(0, getAllocationCount());
+    }
+
+    @Test
+    @UiThreadTest
+    public void animationFrames_allocateNothing() {
+        animateOpenAndClose(false);
+        animateOpenAndClose(true);
+    }
+
+    @Test
+    @UiThreadTest
+    public void springAnimationFrames_allocateNothing() {
+        mList.setItemSettleMode(SlidingItemMenuRecyclerView.ITEM_SETTLE_MODE_SPRING);
+        animateOpenAndClose(false);
+        animateOpenAndClose(true);
+    }
+
+    @Test
+    @UiThreadTest
+    public void releaseAnimationFrames_afterDrag_allocateNothing() {
+        drag(false);
+        stepFramesUntilIdle(false);
+        mList.releaseItemView(false);
+
+        drag(true);
+        stepFramesUntilIdle(true);
+    }
+
+    private void animateOpenAndClose(boolean assertNoAllocations) {
+        resetAllocationCount();
+        mList.openItemAtPosition(0, true);
+        if (assertNoAllocations) {
+            assertEquals("Allocations on starting to open", 0, getAllocationCount());
+        }
+        stepFramesUntilIdle(assertNoAllocations);
+
+        resetAllocationCount();
+        mList.releaseItemView(true);
+        if (assertNoAllocations) {
+            assertEquals("Allocations on starting to close", 0, getAllocationCount());
+        }
+        stepFramesUntilIdle(assertNoAllocations);
+    }
+
+    /** Steps the animation clock frame by frame until all the running animations end. */
+    private void stepFramesUntilIdle(boolean assertNoAllocations) {
+        // The animations are timed by the uptime, so the frames start from now on.
+        mFrameTimeNanos = Math.max(mFrameTimeNanos, SystemClock.uptimeMillis() * 1_000_000L);
+        int frameCount = 0;
+        while (mDriver.getRunningAnimationCount() > 0) {
+            assertTrue("Animations not ending", ++frameCount <= MAX_FRAME_COUNT);
+
+            mFrameTimeNanos += FRAME_INTERVAL_NANOS;
+            resetAllocationCount();
+            mDriver.doFrame(mFrameTimeNanos);
+            final int count = getAllocationCount();
+            if (assertNoAllocations) {
+                assertEquals("Allocations on frame #" + frameCount, 0, count);
+            }
+        }
+    }
+}
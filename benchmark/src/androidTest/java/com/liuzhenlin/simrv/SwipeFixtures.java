@@ -0,0 +1,134 @@
+package com.liuzhenlin.simrv;
+
+import android.content.Context;
+import android.graphics.Color;
+import android.os.SystemClock;
+import android.util.TypedValue;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+import android.widget.FrameLayout;
+import android.widget.LinearLayout;
+import android.widget.TextView;
+
+import androidx.annotation.NonNull;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Builds a {@link SlidingItemMenuRecyclerView} with rows structured like those of the sample app
+ * for the benchmarks and tests to operate on, either laid out without being attached to a window
+ * or left to be attached to that of a {@link ListHostActivity}.
+ */
+final class SwipeFixtures {
+    static final int LIST_WIDTH = 1080;
+    static final int LIST_HEIGHT = 1920;
+
+    private SwipeFixtures() {
+    }
+
+    @NonNull
+    static SlidingItemMenuRecyclerView createList(@NonNull Context context, int itemCount) {
+        final SlidingItemMenuRecyclerView list = new SlidingItemMenuRecyclerView(context);
+        list.setLayoutManager(new LinearLayoutManager(context));
+        list.setAdapter(new Adapter(itemCount));
+        return list;
+    }
+
+    @NonNull
+    static SlidingItemMenuRecyclerView createLaidOutList(@NonNull Context context, int itemCount) {
+        final SlidingItemMenuRecyclerView list = createList(context, itemCount);
+        list.measure(
+                View.MeasureSpec.makeMeasureSpec(LIST_WIDTH, View.MeasureSpec.EXACTLY),
+                View.MeasureSpec.makeMeasureSpec(LIST_HEIGHT, View.MeasureSpec.EXACTLY));
+        list.layout(0, 0, LIST_WIDTH, LIST_HEIGHT);
+        return list;
+    }
+
+    /**
+     * Creates a horizontal drag on the given item view, from its center towards the horizontal
+     * start over its menu width, consisting of an ACTION_DOWN, the given number of ACTION_MOVEs
+     * and an ACTION_UP. The returned events are meant to be reused across iterations.
+     */
+    @NonNull
+    static MotionEvent[] obtainDragEvents(@NonNull View itemView, int moveCount, int distance) {
+        final MotionEvent[] events = new MotionEvent[moveCount + 2];
+        final long downTime = SystemClock.uptimeMillis();
+        final float y = (itemView.getTop() + itemView.getBottom()) / 2f;
+        final float startX = (itemView.getLeft() + itemView.getRight()) / 2f;
+        final float step = (float) distance / moveCount;
+        events[0] = MotionEvent.obtain(downTime, downTime, MotionEvent.ACTION_DOWN, startX, y, 0);
+        for (int i = 1; i <= moveCount; i++) {
+            events[i] = MotionEvent.obtain(downTime, downTime + i * 8L,
+                    MotionEvent.ACTION_MOVE, startX - i * step, y, 0);
+        }
+        events[moveCount + 1] = MotionEvent.obtain(downTime, downTime + (moveCount + 1) * 8L,
+                MotionEvent.ACTION_UP, startX - distance, y, 0);
+        return events;
+    }
+
+    static void recycle(@NonNull MotionEvent[] events) {
+        for (MotionEvent event : events) {
+            event.recycle();
+        }
+    }
+
+    static int dp(@NonNull Context context, float dp) {
+        return (int) TypedValue.applyDimension(TypedValue.COMPLEX_UNIT_DIP, dp,
+                context.getResources().getDisplayMetrics());
+    }
+
+    /** Creates a row with some content followed by a menu of three menu items. */
+    @NonNull
+    static ViewGroup createItemView(@NonNull Context context) {
+        final LinearLayout itemView = new LinearLayout(context);
+        itemView.setOrientation(LinearLayout.HORIZONTAL);
+        itemView.setLayoutParams(new RecyclerView.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, dp(context, 56)));
+
+        final TextView text = new TextView(context);
+        itemView.addView(text, new LinearLayout.LayoutParams(
+                ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+
+        final FrameLayout itemMenu = new FrameLayout(context);
+        itemView.addView(itemMenu, new LinearLayout.LayoutParams(
+                dp(context, 1000), ViewGroup.LayoutParams.MATCH_PARENT));
+        final int[] menuItemWidths = {100, 100, 80};
+        final int[] menuItemColors = {0xFFFFA500, Color.RED, 0xFF87CEEB};
+        for (int i = 0; i < menuItemWidths.length; i++) {
+            final FrameLayout menuItemFrame = new FrameLayout(context);
+            menuItemFrame.setBackgroundColor(menuItemColors[i]);
+            final TextView menuItem = new TextView(context);
+            menuItemFrame.addView(menuItem, new FrameLayout.LayoutParams(
+                    dp(context, menuItemWidths[i]), ViewGroup.LayoutParams.MATCH_PARENT));
+            itemMenu.addView(menuItemFrame, new FrameLayout.LayoutParams(
+                    ViewGroup.LayoutParams.MATCH_PARENT, ViewGroup.LayoutParams.MATCH_PARENT));
+        }
+        return itemView;
+    }
+
+    private static final class Adapter extends RecyclerView.Adapter<RecyclerView.ViewHolder> {
+        final int itemCount;
+
+        Adapter(int itemCount) {
+            this.itemCount = itemCount;
+        }
+
+        @NonNull
+        @Override
+        public RecyclerView.ViewHolder onCreateViewHolder(@NonNull ViewGroup parent, int viewType) {
+            return new RecyclerView.ViewHolder(createItemView(parent.getContext())) {
+            };
+        }
+
+        @Override
+        public void onBindViewHolder(@NonNull RecyclerView.ViewHolder holder, int position) {
+            ((TextView) ((ViewGroup) holder.itemView).getChildAt(0)).setText("ItemView " + position);
+        }
+
+        @Override
+        public int getItemCount() {
+            return itemCount;
+        }
+    }
+}
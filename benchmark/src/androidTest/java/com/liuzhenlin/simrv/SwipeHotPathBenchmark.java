@@ -0,0 +1,140 @@
+package com.liuzhenlin.simrv;
+
+import android.content.Context;
+import android.graphics.Rect;
+import android.view.MotionEvent;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.annotation.UiThreadTest;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+/**
+ * Microbenchmarks for the code paths run on every touch or frame while item views are swiped.
+ * Besides the time per operation, the allocation count per operation is also reported by
+ * the {@link BenchmarkRule}, which is expected to be 0 for all of these in the steady state.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SwipeHotPathBenchmark {
+    @Rule
+    public final BenchmarkRule benchmarkRule = new BenchmarkRule();
+
+    private SlidingItemMenuRecyclerView mList;
+    private ViewGroup mItemView;
+    private MotionEvent[] mDragEvents;
+    private final Rect mHitRect = new Rect();
+
+    @Before
+    @UiThreadTest
+    public void setUp() {
+        final Context context = InstrumentationRegistry.getInstrumentation().getTargetContext();
+        mList = SwipeFixtures.createLaidOutList(context, 100);
+        mItemView = (ViewGroup) mList.getChildAt(0);
+        mDragEvents = SwipeFixtures.obtainDragEvents(mItemView, 16, SwipeFixtures.dp(context, 280));
+    }
+
+    @After
+    @UiThreadTest
+    public void tearDown() {
+        SwipeFixtures.recycle(mDragEvents);
+    }
+
+    @Test
+    @UiThreadTest
+    public void childHasMenu() {
+        final BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            mList.childHasMenu(mItemView);
+        }
+    }
+
+    @Test
+    @UiThreadTest
+    public void childHasMenu_afterMenuRelayout() {
+        final View itemMenu = mItemView.getChildAt(mItemView.getChildCount() - 1);
+        final BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            state.pauseTiming();
+            itemMenu.requestLayout();
+            itemMenu.layout(itemMenu.getLeft(), itemMenu.getTop(),
+                    itemMenu.getRight(), itemMenu.getBottom());
+            state.resumeTiming();
+
+            mList.childHasMenu(mItemView);
+        }
+    }
+
+    @Test
+    @UiThreadTest
+    public void findItemViewUnder() {
+        final View lastChild = mList.getChildAt(mList.getChildCount() - 1);
+        final int x = (lastChild.getLeft() + lastChild.getRight()) / 2;
+        final int y = (lastChild.getTop() + lastChild.getBottom()) / 2;
+        final BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            ItemViewFinder.findItemViewUnder(mList, x, y, mHitRect);
+        }
+    }
+
+    @Test
+    @UiThreadTest
+    public void findItemViewUnderLinearly() {
+        // The first child is the last one checked by the linear scan.
+        final View firstChild = mList.getChildAt(0);
+        final int x = (firstChild.getLeft() + firstChild.getRight()) / 2;
+        final int y = (firstChild.getTop() + firstChild.getBottom()) / 2;
+        final BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            ItemViewFinder.findItemViewUnderLinearly(mList, x, y, mHitRect);
+        }
+    }
+
+    @Test
+    @UiThreadTest
+    public void baseTranslateItemViewXBy() {
+        mList.childHasMenu(mItemView);
+        final ItemSwipeState swipeState = SlidingItemMenuRecyclerView.getItemSwipeState(mItemView);
+        // Oscillates around the middle of the menu, so that the item stays open.
+        mList.baseTranslateItemViewXBy(swipeState, -swipeState.itemMenuWidth / 2f);
+        float dx = 1f;
+        final BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            mList.baseTranslateItemViewXBy(swipeState, dx);
+            dx = -dx;
+        }
+    }
+
+    @Test
+    @UiThreadTest
+    public void dragSequence() {
+        final BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            for (MotionEvent event : mDragEvents) {
+                mList.dispatchTouchEvent(event);
+            }
+
+            state.pauseTiming();
+            mList.releaseItemView(false);
+            state.resumeTiming();
+        }
+    }
+
+    @Test
+    @UiThreadTest
+    public void animationStartAndCancel() {
+        final BenchmarkState state = benchmarkRule.getState();
+        while (state.keepRunning()) {
+            mList.openItemAtPosition(0, true);
+            mList.releaseItemView(false);
+        }
+    }
+}
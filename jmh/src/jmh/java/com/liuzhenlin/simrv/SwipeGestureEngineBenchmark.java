@@ -0,0 +1,135 @@
+package com.liuzhenlin.simrv;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Drives {@link SwipeGestureEngine} with synthetic touch event streams, measuring the cost of
+ * the decisions made on a whole gesture and, with the gc profiler enabled in the build file,
+ * the allocations of them, which should stay at 0 bytes per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class SwipeGestureEngineBenchmark {
+    private static final int TOUCH_SLOP = 24;
+    private static final float MIN_FLING_VELOCITY = 525f; // 200 dp/s at 2.625x density
+    private static final int MENU_WIDTH = 630;
+
+    /** The interval between two move events, as of a 60 Hz display */
+    private static final int MOVE_INTERVAL_MILLIS = 16;
+
+    /** The number of move events in each gesture */
+    @Param({"30"})
+    public int moveCount;
+
+    /** The number of samples batched into each move event, including the current one */
+    @Param({"1", "4"})
+    public int samplesPerMove;
+
+    private SwipeGestureEngine mEngine;
+
+    private TouchStream mSwipe;
+    private TouchStream mVerticalScroll;
+
+    @Setup
+    public void setUp() {
+        mEngine = new SwipeGestureEngine(TOUCH_SLOP, MIN_FLING_VELOCITY);
+        // Swipes a closed item view open, going a little beyond its menu.
+        mSwipe = new TouchStream(1000f, 500f, -(MENU_WIDTH + 90f), 0f, moveCount, samplesPerMove);
+        // Scrolls the list, which never starts dragging any item view.
+        mVerticalScroll = new TouchStream(600f, 1500f, -15f, -900f, moveCount, samplesPerMove);
+    }
+
+    @Benchmark
+    public int swipeOpen() {
+        return runSwipe(mSwipe, 0);
+    }
+
+    @Benchmark
+    public int swipeOpenWithPrediction() {
+        return runSwipe(mSwipe, MOVE_INTERVAL_MILLIS);
+    }
+
+    @Benchmark
+    public int scrollVertically() {
+        return runSwipe(mVerticalScroll, 0);
+    }
+
+    @Benchmark
+    public void downWithItemsOpen(Blackhole bh) {
+        final SwipeGestureEngine engine = mEngine;
+        engine.onDown(0, 900f, 500f);
+        bh.consume(engine.onDownWithItemsOpen(true, true, true));
+        engine.onDown(0, 100f, 500f);
+        bh.consume(engine.onDownWithItemsOpen(true, true, false));
+        engine.onDown(0, 900f, 1500f);
+        bh.consume(engine.onDownWithItemsOpen(true, false, false));
+    }
+
+    /**
+     * Runs a whole gesture through the engine, translating an imaginary item view as
+     * SlidingItemMenuRecyclerView does.
+     *
+     * @return the release decision, so that the gesture is not optimized away
+     */
+    private int runSwipe(TouchStream stream, long predictionMillis) {
+        final SwipeGestureEngine engine = mEngine;
+        final int samplesPerMove = stream.samplesPerMove;
+        float translationX = 0;
+
+        engine.onDown(stream.times[0], stream.xs[0], stream.ys[0]);
+        for (int i = 1; i < stream.times.length; i += samplesPerMove) {
+            final int current = i + samplesPerMove - 1;
+            engine.onMove(stream.xs[current], stream.ys[current]);
+            for (int j = i; j <= current; j++) {
+                engine.addSample(stream.times[j], stream.xs[j]);
+            }
+            if (engine.isDragging()) {
+                translationX += engine.computeDragDelta(
+                        translationX, MENU_WIDTH, false, predictionMillis);
+            } else {
+                engine.tryStartDrag(false, false);
+            }
+        }
+        if (!engine.isDragging()) {
+            return -1;
+        }
+        return engine.decideRelease(translationX, MENU_WIDTH, false, engine.getVelocity());
+    }
+
+    /** A down event followed by move events easing out, with historical samples */
+    private static final class TouchStream {
+        final int samplesPerMove;
+        final long[] times;
+        final float[] xs;
+        final float[] ys;
+
+        TouchStream(float downX, float downY, float dx, float dy, int moveCount,
+                    int samplesPerMove) {
+            this.samplesPerMove = samplesPerMove;
+            final int sampleCount = 1 + moveCount * samplesPerMove;
+            times = new long[sampleCount];
+            xs = new float[sampleCount];
+            ys = new float[sampleCount];
+            final float duration = moveCount * MOVE_INTERVAL_MILLIS;
+            for (int i = 0; i < sampleCount; i++) {
+                final float time = i * (float) MOVE_INTERVAL_MILLIS / samplesPerMove;
+                times[i] = (long) time;
+                // Eases out, as a finger slowing down towards the end of the gesture does.
+                final float fraction = 1 - (1 - time / duration) * (1 - time / duration);
+                xs[i] = downX + dx * fraction;
+                ys[i] = downY + dy * fraction;
+            }
+        }
+    }
+}
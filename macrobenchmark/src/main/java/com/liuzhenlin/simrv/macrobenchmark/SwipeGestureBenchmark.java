@@ -0,0 +1,131 @@
+package com.liuzhenlin.simrv.macrobenchmark;
+
+import android.graphics.Rect;
+
+import androidx.benchmark.macro.CompilationMode;
+import androidx.benchmark.macro.FrameTimingMetric;
+import androidx.benchmark.macro.MacrobenchmarkScope;
+import androidx.benchmark.macro.StartupMode;
+import androidx.benchmark.macro.junit4.MacrobenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+import androidx.test.uiautomator.By;
+import androidx.test.uiautomator.Direction;
+import androidx.test.uiautomator.UiDevice;
+import androidx.test.uiautomator.UiObject2;
+import androidx.test.uiautomator.Until;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Collections;
+
+import kotlin.Unit;
+import kotlin.jvm.functions.Function1;
+
+/**
+ * Drives real swipe gestures on a long list in the sample app and reports the frame timing
+ * percentiles of them. A frame with a positive {@code frameOverrunMs} missed its deadline and
+ * was thus janky, so the overrun percentiles also tell how many of the frames were janky.
+ */
+@RunWith(AndroidJUnit4.class)
+public class SwipeGestureBenchmark {
+    private static final String PACKAGE_NAME = "com.liuzhenlin.simrv.sample";
+
+    // Keep in sync with the extras defined in the sample MainActivity.
+    private static final String EXTRA_ITEM_COUNT = "itemCount";
+    private static final String EXTRA_OPEN_ITEMS_ON_START = "openItemsOnStart";
+
+    private static final int ITEM_COUNT = 1000;
+    private static final int ITERATIONS = 10;
+
+    /** The number of steps to inject the swipes in, each taking about 5 ms */
+    private static final int SWIPE_STEPS = 40;
+
+    @Rule
+    public final MacrobenchmarkRule benchmarkRule = new MacrobenchmarkRule();
+
+    @Test
+    public void swipeOpen() {
+        measure(scope -> swipeRow(scope.getDevice(), 1, true));
+    }
+
+    @Test
+    public void swipeClose() {
+        measure(scope -> {
+            final UiDevice device = scope.getDevice();
+            swipeRow(device, 1, true);
+            swipeRow(device, 1, false);
+        });
+    }
+
+    @Test
+    public void flingList() {
+        measure(scope -> {
+            final UiObject2 list = findList(scope.getDevice());
+            list.fling(Direction.DOWN);
+            list.fling(Direction.UP);
+        });
+    }
+
+    @Test
+    public void scrollWhileOpen() {
+        measure(scope -> {
+            final UiDevice device = scope.getDevice();
+            swipeRow(device, 1, true);
+            final UiObject2 list = findList(device);
+            list.scroll(Direction.DOWN, 0.8f);
+            list.scroll(Direction.UP, 0.8f);
+        });
+    }
+
+    private interface Gesture {
+        void perform(MacrobenchmarkScope scope);
+    }
+
+    private void measure(Gesture gesture) {
+        final Function1<MacrobenchmarkScope, Unit> setupBlock = scope -> {
+            scope.pressHome();
+            scope.startActivityAndWait(intent -> {
+                intent.putExtra(EXTRA_ITEM_COUNT, ITEM_COUNT);
+                intent.putExtra(EXTRA_OPEN_ITEMS_ON_START, false);
+                return Unit.INSTANCE;
+            });
+            return Unit.INSTANCE;
+        };
+        final Function1<MacrobenchmarkScope, Unit> measureBlock = scope -> {
+            gesture.perform(scope);
+            return Unit.INSTANCE;
+        };
+        benchmarkRule.measureRepeated(
+                PACKAGE_NAME,
+                Collections.singletonList(new FrameTimingMetric()),
+                new CompilationMode.Partial(),
+                StartupMode.WARM,
+                ITERATIONS,
+                setupBlock,
+                measureBlock);
+    }
+
+    private static UiObject2 findList(UiDevice device) {
+        return device.wait(Until.findObject(By.res(PACKAGE_NAME, "simrv")), 5000);
+    }
+
+    /**
+     * Swipes the row at the given child index of the list towards the horizontal start
+     * to open it or towards the horizontal end to close it, assuming a left-to-right layout.
+     */
+    private static void swipeRow(UiDevice device, int index, boolean open) {
+        final UiObject2 row = findList(device).getChildren().get(index);
+        final Rect bounds = row.getVisibleBounds();
+        final int y = bounds.centerY();
+        final int start = bounds.left + bounds.width() * 4 / 5;
+        final int end = bounds.left + bounds.width() / 5;
+        if (open) {
+            device.swipe(start, y, end, y, SWIPE_STEPS);
+        } else {
+            device.swipe(end, y, start, y, SWIPE_STEPS);
+        }
+        device.waitForIdle();
+    }
+}
@@ -0,0 +1,180 @@
+package com.liuzhenlin.simrv;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.util.ArrayDeque;
+
+/**
+ * An output stream handing what is written to it over to a background thread in chunks,
+ * which writes them to the underlying stream, so that the thread writing to this never blocks
+ * on the I/O of the underlying stream, except for when this is flushed or closed.
+ * <p>
+ * The chunks are recycled once written, so nothing is allocated for the writes once there are
+ * enough chunks for the background thread to keep up with. A failure of the underlying stream
+ * is thrown on the next write, flush or close of this.
+ */
+final class BackgroundOutputStream extends OutputStream {
+    static final int CHUNK_SIZE = 8192;
+
+    private final OutputStream mOut;
+
+    private static final class Chunk {
+        final byte[] data = new byte[CHUNK_SIZE];
+        int length;
+    }
+
+    /** The chunk being filled by the writing thread, or null if none has been taken yet */
+    private Chunk mChunk;
+
+    /** Guards all the fields below, and is waited on by both threads. */
+    private final Object mLock = new Object();
+    /** The chunks to be written by the background thread, in order */
+    private final ArrayDeque<Chunk> mPendingChunks = new ArrayDeque<>();
+    /** The chunks already written, to be filled again */
+    private final ArrayDeque<Chunk> mFreeChunks = new ArrayDeque<>();
+    /** Whether the background thread is writing a chunk taken out of {@link #mPendingChunks} */
+    private boolean mWriting;
+    private boolean mClosed;
+    /** The first failure of the underlying stream, after which nothing is written to it */
+    private IOException mError;
+
+    BackgroundOutputStream(OutputStream out, String threadName) {
+        mOut = out;
+        final Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                writeChunks();
+            }
+        }, threadName);
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    /*synthetic*/ void writeChunks() {
+        while (true) {
+            final Chunk chunk;
+            final boolean write;
+            synchronized (mLock) {
+                while (mPendingChunks.isEmpty() && !mClosed) {
+                    try {
+                        mLock.wait();
+                    } catch (InterruptedException e) {
+                        // Only stopped by closing this.
+                    }
+                }
+                chunk = mPendingChunks.pollFirst();
+                if (chunk == null) return;
+                // The chunks left after a failure are only recycled.
+                write = mWriting = mError == null;
+            }
+
+            IOException error = null;
+            if (write) {
+                try {
+                    mOut.write(chunk.data, 0, chunk.length);
+                } catch (IOException e) {
+                    error = e;
+                }
+            }
+
+            synchronized (mLock) {
+                mWriting = false;
+                if (mError == null) {
+                    mError = error;
+                }
+                chunk.length = 0;
+                mFreeChunks.addLast(chunk);
+                mLock.notifyAll();
+            }
+        }
+    }
+
+    @Override
+    public void write(int b) throws IOException {
+        if (mChunk == null || mChunk.length == CHUNK_SIZE) {
+            submitChunk();
+        }
+        mChunk.data[mChunk.length++] = (byte) b;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException {
+        if ((off | len) < 0 || len > b.length - off) {
+            throw new IndexOutOfBoundsException();
+        }
+        while (len > 0) {
+            if (mChunk == null || mChunk.length == CHUNK_SIZE) {
+                submitChunk();
+            }
+            final int count = Math.min(len, CHUNK_SIZE - mChunk.length);
+            System.arraycopy(b, off, mChunk.data, mChunk.length, count);
+            mChunk.length += count;
+            off += count;
+            len -= count;
+        }
+    }
+
+    /** Hands the current chunk, if not empty, over to the background thread and takes another. */
+    private void submitChunk() throws IOException {
+        synchronized (mLock) {
+            if (mClosed) {
+                throw new IOException("Stream closed");
+            }
+            if (mError != null) {
+                throw mError;
+            }
+            if (mChunk != null && mChunk.length > 0) {
+                mPendingChunks.addLast(mChunk);
+                mLock.notifyAll();
+                mChunk = null;
+            }
+            if (mChunk == null) {
+                mChunk = mFreeChunks.pollFirst();
+            }
+        }
+        if (mChunk == null) {
+            mChunk = new Chunk();
+        }
+    }
+
+    /** Waits for all the chunks submitted to be written to the underlying stream. */
+    private void drainChunks() throws IOException {
+        synchronized (mLock) {
+            while ((!mPendingChunks.isEmpty() || mWriting) && mError == null) {
+                try {
+                    mLock.wait();
+                } catch (InterruptedException e) {
+                    throw new InterruptedIOException();
+                }
+            }
+            if (mError != null) {
+                throw mError;
+            }
+        }
+    }
+
+    /** Writes everything written so far to the underlying stream and flushes it. */
+    @Override
+    public void flush() throws IOException {
+        submitChunk();
+        drainChunks();
+        mOut.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        synchronized (mLock) {
+            if (mClosed) return;
+        }
+        try {
+            flush();
+        } finally {
+            synchronized (mLock) {
+                mClosed = true;
+                mLock.notifyAll();
+            }
+            mOut.close();
+        }
+    }
+}
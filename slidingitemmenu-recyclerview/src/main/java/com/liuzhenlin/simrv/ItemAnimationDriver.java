@@ -0,0 +1,383 @@
+package com.liuzhenlin.simrv;
+
+import android.animation.ValueAnimator;
+import android.os.Build;
+import android.view.Choreographer;
+import android.view.animation.AnimationUtils;
+import android.view.animation.Interpolator;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.RequiresApi;
+import androidx.annotation.VisibleForTesting;
+import androidx.core.view.ViewCompat;
+
+/**
+ * Drives the open/close animations of all the item views of a {@link SlidingItemMenuRecyclerView}
+ * from one {@link Choreographer} frame callback per frame, or from one animation callback posted
+ * through {@link ViewCompat#postOnAnimation(android.view.View, Runnable)} on platforms prior to
+ * Jelly Bean, where there is no public Choreographer.
+ * <p>
+ * All the parameters of an animation are kept in the {@link ItemSwipeState} of the animated
+ * item view, so starting, re-targeting or canceling an animation allocates nothing, and all
+ * the running animations are advanced in a single pass, where the translations of their item
+ * views get written one after another.
+ */
+final class ItemAnimationDriver implements Runnable {
+    private final SlidingItemMenuRecyclerView mHost;
+
+    /** The spring is at rest once within this many pixels of its final position... */
+    private static final float SPRING_DISPLACEMENT_THRESHOLD = 0.5f;
+    /** ...and slower than this many pixels per second. */
+    private static final float SPRING_VELOCITY_THRESHOLD = SPRING_DISPLACEMENT_THRESHOLD * 62.5f;
+
+    /**
+     * The states of the animated item views, including the ones whose animations have been
+     * canceled since the last frame, which will be dropped from the array on the next frame.
+     */
+    private ItemSwipeState[] mAnimations = new ItemSwipeState[4];
+    private int mAnimationCount;
+
+    /** The number of animations with {@link ItemSwipeState#animating} set */
+    private int mRunningAnimationCount;
+
+    private boolean mFrameScheduled;
+
+    /** Whether the frames are only stepped through {@link #doFrame(long)} by the tests */
+    private boolean mFramesSteppedManually;
+
+    /** The {@link Choreographer.FrameCallback} on Jelly Bean and above, or null otherwise */
+    private final Object mFrameCallback;
+
+    /** The expected time between two frames, with which dropped frames are detected */
+    private long mFrameIntervalNanos = DEFAULT_FRAME_INTERVAL_NANOS;
+
+    private static final long DEFAULT_FRAME_INTERVAL_NANOS = 1_000_000_000L / 60;
+
+    /**
+     * The animator duration scale set in the system settings, which stretches all the durations
+     * and delays as it does for the system animators, or 0 for the animations to end at once
+     */
+    private float mDurationScale = 1f;
+
+    ItemAnimationDriver(@NonNull SlidingItemMenuRecyclerView host) {
+        mHost = host;
+        mFrameCallback = Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN
+                ? new FrameCallback(this) : null;
+    }
+
+    /**
+     * Stops scheduling frames with the Choreographer, so that the tests can step the frames
+     * through {@link #doFrame(long)} themselves while holding the UI thread, without a frame
+     * callback record being taken out of the pool of the Choreographer for each frame.
+     */
+    @VisibleForTesting
+    void setFramesSteppedManually(boolean manually) {
+        unscheduleFrame();
+        mFramesSteppedManually = manually;
+    }
+
+    /** Sets the refresh rate of the display the host is shown on, used to count dropped frames */
+    void setRefreshRate(float refreshRate) {
+        mFrameIntervalNanos = refreshRate >= 1
+                ? (long) (1_000_000_000L / refreshRate) : DEFAULT_FRAME_INTERVAL_NANOS;
+    }
+
+    /**
+     * Sets the animator duration scale read from the system settings by the host, as the scale
+     * in effect is only exposed by ValueAnimator as of Android 13.
+     */
+    void setDurationScale(float scale) {
+        mDurationScale = scale >= 0 ? scale : 1f;
+    }
+
+    private float getDurationScale() {
+        // Animators are also turned off in the battery saver mode.
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O
+                && !ValueAnimator.areAnimatorsEnabled()) {
+            return 0;
+        }
+        return mDurationScale;
+    }
+
+    /** @return the expected time between two frames of the display the host is shown on */
+    long getFrameIntervalNanos() {
+        return mFrameIntervalNanos;
+    }
+
+    /** @return the number of currently running animations */
+    int getRunningAnimationCount() {
+        return mRunningAnimationCount;
+    }
+
+    /**
+     * @return the number of states held, including the ones whose animations have been
+     *         canceled since the last frame, which stays the same until the next frame
+     */
+    int getAnimationCount() {
+        return mAnimationCount;
+    }
+
+    /** @return the state at the given index, which may no longer be animating */
+    @NonNull
+    ItemSwipeState getAnimation(int index) {
+        return mAnimations[index];
+    }
+
+    /**
+     * Starts to animate the item view of the given state from its current translation by
+     * the given distance, or re-targets its animation if it is already running, in which case
+     * {@link SlidingItemMenuRecyclerView#onItemAnimationStart(ItemSwipeState)} will not be called
+     * once more.
+     *
+     * @param delay the time in milliseconds for the item view to hold still before moving
+     */
+    void start(@NonNull ItemSwipeState state, float dx, int duration,
+               @NonNull Interpolator interpolator, long delay) {
+        state.animSpring = false;
+        state.animStartX = state.translationX;
+        state.animDeltaX = dx;
+        state.animDuration = duration;
+        state.animInterpolator = interpolator;
+        startInternal(state, delay);
+    }
+
+    /**
+     * Starts to settle the item view of the given state to the given position with a spring
+     * whose initial velocity is the given one, or re-targets its running animation with it.
+     * The animation ends as soon as the item view comes to rest, instead of after a fixed time.
+     *
+     * @param velocity     the initial velocity in pixels per second
+     * @param stiffness    the stiffness of the spring, for a unit mass
+     * @param dampingRatio the damping ratio of the spring, which should be in (0, 1]
+     * @param delay        the time in milliseconds for the item view to hold still before moving
+     */
+    void startSpring(@NonNull ItemSwipeState state, float finalX, float velocity,
+                     float stiffness, float dampingRatio, long delay) {
+        state.animSpring = true;
+        state.animStartX = state.translationX;
+        state.animDeltaX = finalX - state.translationX;
+        state.animVelocity = velocity;
+        state.animNaturalFreq = (float) Math.sqrt(stiffness);
+        state.animDampingRatio = dampingRatio;
+        state.animInterpolator = null;
+        startInternal(state, delay);
+    }
+
+    private void startInternal(ItemSwipeState state, long delay) {
+        final float durationScale = getDurationScale();
+        if (durationScale == 0) {
+            // With the animations turned off, jumps to the end as the system animators do.
+            mHost.baseTranslateItemViewXBy(state,
+                    state.animStartX + state.animDeltaX - state.translationX);
+            if (state.animating) {
+                finish(state);
+            }
+            return;
+        }
+        state.animDurationScale = durationScale;
+        // The elapsed time is clamped at 0, so the item view simply stays put until then.
+        state.animStartTime = AnimationUtils.currentAnimationTimeMillis()
+                + (long) (delay * durationScale);
+        if (!state.animating) {
+            state.animating = true;
+            state.animFirstStartTime = state.animStartTime;
+            state.animLastFrameNanos = 0;
+            state.animFrameCount = 0;
+            state.animDroppedFrameCount = 0;
+            mRunningAnimationCount++;
+            if (!state.inAnimationList) {
+                state.inAnimationList = true;
+                if (mAnimationCount == mAnimations.length) {
+                    final ItemSwipeState[] animations = new ItemSwipeState[mAnimationCount << 1];
+                    System.arraycopy(mAnimations, 0, animations, 0, mAnimationCount);
+                    mAnimations = animations;
+                }
+                mAnimations[mAnimationCount++] = state;
+            }
+            mHost.onItemAnimationStart(state);
+        }
+        scheduleFrame();
+    }
+
+    private void scheduleFrame() {
+        if (!mFrameScheduled) {
+            mFrameScheduled = true;
+            if (mFramesSteppedManually) return;
+
+            if (mFrameCallback != null) {
+                Choreographer.getInstance().postFrameCallback(
+                        (Choreographer.FrameCallback) mFrameCallback);
+            } else {
+                ViewCompat.postOnAnimation(mHost, this);
+            }
+        }
+    }
+
+    /** Stops the animation of the given state (if any) right at its current position. */
+    void cancel(@NonNull ItemSwipeState state) {
+        if (state.animating) {
+            finish(state);
+        }
+    }
+
+    /** Immediately brings the animation of the given state (if any) to its final position. */
+    void end(@NonNull ItemSwipeState state) {
+        if (state.animating) {
+            mHost.baseTranslateItemViewXBy(state,
+                    state.animStartX + state.animDeltaX - state.translationX);
+            finish(state);
+        }
+    }
+
+    /** Immediately brings all the running animations to their final positions. */
+    void endAll() {
+        for (int i = mAnimationCount - 1; i >= 0; i--) {
+            end(mAnimations[i]);
+        }
+    }
+
+    private void finish(ItemSwipeState state) {
+        state.animTotalDuration =
+                AnimationUtils.currentAnimationTimeMillis() - state.animFirstStartTime;
+        state.animating = false;
+        state.animInterpolator = null;
+        mRunningAnimationCount--;
+        mHost.onItemAnimationEnd(state);
+    }
+
+    @Override
+    public void run() {
+        doFrame(System.nanoTime());
+    }
+
+    /*synthetic*/ void doFrame(long frameTimeNanos) {
+        mFrameScheduled = false;
+
+        // Both are based on the monotonic clock.
+        final long now = frameTimeNanos / 1_000_000L;
+        final long frameInterval = mFrameIntervalNanos;
+        final int count = mAnimationCount;
+        int kept = 0;
+        for (int i = 0; i < count; i++) {
+            final ItemSwipeState state = mAnimations[i];
+            if (state.animating) {
+                if (state.animLastFrameNanos != 0) {
+                    final long interval = frameTimeNanos - state.animLastFrameNanos;
+                    if (interval > frameInterval * 3 / 2) {
+                        state.animDroppedFrameCount +=
+                                (int) ((interval + frameInterval / 2) / frameInterval) - 1;
+                    }
+                }
+                state.animLastFrameNanos = frameTimeNanos;
+                state.animFrameCount++;
+
+                // The animation time passes slower or faster as the durations are scaled.
+                final long elapsed = (long) (Math.max(0, now - state.animStartTime)
+                        / state.animDurationScale);
+                final boolean finished = state.animSpring
+                        ? advanceSpring(state, elapsed) : advance(state, elapsed);
+                if (finished) {
+                    finish(state);
+                }
+            }
+            // The animation may have finished above or have been restarted by the host
+            // in response to its end, so check for it again.
+            if (state.animating) {
+                mAnimations[kept++] = state;
+            } else {
+                state.inAnimationList = false;
+            }
+        }
+        // Moves down any animation newly added during the pass
+        for (int i = count; i < mAnimationCount; i++) {
+            mAnimations[kept++] = mAnimations[i];
+        }
+        for (int i = kept; i < mAnimationCount; i++) {
+            mAnimations[i] = null;
+        }
+        mAnimationCount = kept;
+
+        if (mRunningAnimationCount > 0) {
+            scheduleFrame();
+        }
+    }
+
+    /** @return true if the animation has reached its end */
+    private boolean advance(ItemSwipeState state, long elapsed) {
+        final float fraction = elapsed >= state.animDuration
+                ? 1f : (float) elapsed / (float) state.animDuration;
+        final float x = state.animStartX
+                + state.animDeltaX * state.animInterpolator.getInterpolation(fraction);
+        mHost.baseTranslateItemViewXBy(state, x - state.translationX);
+        return fraction == 1f;
+    }
+
+    /**
+     * Moves the item view to where the spring places it at the given time, using the closed-form
+     * solution of the damped harmonic oscillator rather than integrating it frame by frame.
+     *
+     * @return true if the item view has come to rest
+     */
+    private boolean advanceSpring(ItemSwipeState state, long elapsed) {
+        final double t = elapsed / 1000.0;
+        final double omega = state.animNaturalFreq;
+        final double zeta = state.animDampingRatio;
+        // Displacement from and velocity relative to the final position
+        final double x0 = -state.animDeltaX;
+        final double v0 = state.animVelocity;
+        final double x, v;
+        if (zeta < 1) {
+            final double omegaD = omega * Math.sqrt(1 - zeta * zeta);
+            final double decay = Math.exp(-zeta * omega * t);
+            final double cos = Math.cos(omegaD * t);
+            final double sin = Math.sin(omegaD * t);
+            final double b = (v0 + zeta * omega * x0) / omegaD;
+            x = decay * (x0 * cos + b * sin);
+            v = decay * (-zeta * omega * (x0 * cos + b * sin) + omegaD * (b * cos - x0 * sin));
+        } else {
+            // Critically damped
+            final double decay = Math.exp(-omega * t);
+            final double b = v0 + omega * x0;
+            x = (x0 + b * t) * decay;
+            v = (b - omega * (x0 + b * t)) * decay;
+        }
+
+        final float finalX = state.animStartX + state.animDeltaX;
+        final boolean atRest = Math.abs(x) < SPRING_DISPLACEMENT_THRESHOLD
+                && Math.abs(v) < SPRING_VELOCITY_THRESHOLD;
+        mHost.baseTranslateItemViewXBy(state,
+                (atRest ? finalX : finalX + (float) x) - state.translationX);
+        return atRest;
+    }
+
+    /** Removes the scheduled frame callback, if any, when the host gets detached. */
+    void unscheduleFrame() {
+        if (mFrameScheduled) {
+            mFrameScheduled = false;
+            if (mFramesSteppedManually) return;
+
+            if (mFrameCallback != null) {
+                Choreographer.getInstance().removeFrameCallback(
+                        (Choreographer.FrameCallback) mFrameCallback);
+            } else {
+                mHost.removeCallbacks(this);
+            }
+        }
+    }
+
+    // Kept apart from the driver so that the latter will not fail to be loaded on platforms
+    // where the Choreographer is not available.
+    @RequiresApi(Build.VERSION_CODES.JELLY_BEAN)
+    private static final class FrameCallback implements Choreographer.FrameCallback {
+        final ItemAnimationDriver driver;
+
+        FrameCallback(ItemAnimationDriver driver) {
+            this.driver = driver;
+        }
+
+        @Override
+        public void doFrame(long frameTimeNanos) {
+            driver.doFrame(frameTimeNanos);
+        }
+    }
+}
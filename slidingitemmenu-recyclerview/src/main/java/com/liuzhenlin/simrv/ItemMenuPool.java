@@ -0,0 +1,48 @@
+package com.liuzhenlin.simrv;
+
+import android.util.SparseArray;
+import android.widget.FrameLayout;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.util.ArrayList;
+
+/**
+ * A pool of the lazily attached menus detached from recycled item views, kept per item view
+ * type so that a menu is only ever reused for an item view with the same structure.
+ */
+final class ItemMenuPool {
+    /** The maximum number of menus kept for each view type, as that of the RecycledViewPool */
+    private static final int MAX_MENUS_PER_VIEW_TYPE = 5;
+
+    private final SparseArray<ArrayList<FrameLayout>> mMenus = new SparseArray<>();
+
+    /** @return a pooled menu for the given view type, or null if there is none */
+    @Nullable
+    FrameLayout acquire(int viewType) {
+        final ArrayList<FrameLayout> menus = mMenus.get(viewType);
+        if (menus == null || menus.isEmpty()) {
+            return null;
+        }
+        return menus.remove(menus.size() - 1);
+    }
+
+    /** @return false if the pool for the given view type is full and the menu is dropped */
+    boolean release(int viewType, @NonNull FrameLayout menu) {
+        ArrayList<FrameLayout> menus = mMenus.get(viewType);
+        if (menus == null) {
+            menus = new ArrayList<>(MAX_MENUS_PER_VIEW_TYPE);
+            mMenus.put(viewType, menus);
+        }
+        if (menus.size() >= MAX_MENUS_PER_VIEW_TYPE) {
+            return false;
+        }
+        menus.add(menu);
+        return true;
+    }
+
+    void clear() {
+        mMenus.clear();
+    }
+}
@@ -0,0 +1,89 @@
+package com.liuzhenlin.simrv;
+
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Performance metrics of one swipe of an item view, from the user's finger putting down on it
+ * through to the end of the animation that settled it open or closed after the finger lifted.
+ * <p>
+ * A single instance is reused for every swipe reported by a {@link SlidingItemMenuRecyclerView},
+ * so the values are only valid during the call to
+ * {@link SlidingItemMenuRecyclerView.OnItemSwipeMetricsListener#onItemSwipeMetrics}
+ * and must be copied out if they are needed afterwards.
+ *
+ * @see SlidingItemMenuRecyclerView#setOnItemSwipeMetricsListener
+ */
+public final class ItemSwipeMetrics {
+    ViewGroup mItemView;
+    long mDownToFirstTranslationMillis;
+    int mDragFrameCount;
+    long mAnimationDurationMillis;
+    int mAnimationFrameCount;
+    int mDroppedFrameCount;
+    boolean mHardwareLayersUsed;
+
+    ItemSwipeMetrics() {
+    }
+
+    /** @return the swiped item view */
+    @NonNull
+    public ViewGroup getItemView() {
+        return mItemView;
+    }
+
+    /**
+     * @return the time in milliseconds from the finger putting down to the item view first
+     *         being translated following it, or -1 if it was never translated during the drag.
+     *         It is taken as the translation is applied while the touch event is handled,
+     *         so it does not include the time for the frame showing it to be drawn.
+     */
+    public long getDownToFirstTranslationMillis() {
+        return mDownToFirstTranslationMillis;
+    }
+
+    /** @return the number of times the item view was translated following the finger */
+    public int getDragFrameCount() {
+        return mDragFrameCount;
+    }
+
+    /**
+     * @return the time in milliseconds the item view took to settle after the finger lifted,
+     *         or 0 if it was already where it should be and was therefore not animated
+     */
+    public long getAnimationDurationMillis() {
+        return mAnimationDurationMillis;
+    }
+
+    /** @return the number of frames drawn for the settling animation */
+    public int getAnimationFrameCount() {
+        return mAnimationFrameCount;
+    }
+
+    /**
+     * @return the number of frames estimated to have been skipped during the settling animation,
+     *         from the gaps between the times of consecutive animation frames
+     */
+    public int getDroppedFrameCount() {
+        return mDroppedFrameCount;
+    }
+
+    /** @return whether the item view was rendered into hardware layers while settling */
+    public boolean isHardwareLayersUsed() {
+        return mHardwareLayersUsed;
+    }
+
+    @NonNull
+    @Override
+    public String toString() {
+        return "ItemSwipeMetrics{" +
+                "downToFirstTranslationMillis=" + mDownToFirstTranslationMillis +
+                ", dragFrameCount=" + mDragFrameCount +
+                ", animationDurationMillis=" + mAnimationDurationMillis +
+                ", animationFrameCount=" + mAnimationFrameCount +
+                ", droppedFrameCount=" + mDroppedFrameCount +
+                ", hardwareLayersUsed=" + mHardwareLayersUsed +
+                '}';
+    }
+}
@@ -0,0 +1,377 @@
+package com.liuzhenlin.simrv;
+
+import android.annotation.SuppressLint;
+import android.os.Build;
+import android.view.View;
+import android.view.ViewGroup;
+import android.view.ViewStub;
+import android.view.animation.Interpolator;
+import android.widget.FrameLayout;
+
+import androidx.annotation.NonNull;
+import androidx.core.view.ViewCompat;
+
+/**
+ * The swiping state of an item view, attached to it once and then reused for as long as
+ * the item view lives, so that the per-frame drag and animation paths need neither look up
+ * view tags nor unbox or allocate anything.
+ * <p>
+ * The menu widths are measured lazily and remain valid until the menu is laid out again, which
+ * is what happens whenever the size of any of the menu items changes or any of them gets gone,
+ * or until any of the menu items is shown or made invisible, which only redraws the menu and
+ * is thus checked for each time the widths are resolved.
+ */
+final class ItemSwipeState implements View.OnLayoutChangeListener {
+    private static final int[] EMPTY_INTS = new int[0];
+    private static final float[] EMPTY_FRACTIONS = new float[0];
+    private static final boolean[] EMPTY_BOOLEANS = new boolean[0];
+
+    /** The item view this state belongs to */
+    final ViewGroup itemView;
+
+    /** The menu the widths are measured from */
+    private FrameLayout mItemMenu;
+
+    /** Whether the cached widths are up-to-date with the current layout of {@link #mItemMenu} */
+    private boolean mMenuGeometryValid;
+
+    /** The sum of the widths of all the visible menu items */
+    int itemMenuWidth;
+
+    /**
+     * The widths of the menu items, with the invisible ones being 0.
+     * Only the first {@link #menuItemCount} elements are meaningful.
+     */
+    int[] menuItemWidths = EMPTY_INTS;
+
+    /**
+     * The ratios of the total widths of the menu items preceding each menu item to
+     * {@link #itemMenuWidth}, i.e., the fractions of the item translation the menu item frames
+     * are translated back by, for the parallax of the menu.
+     * Only the first {@link #menuItemCount} elements are meaningful.
+     */
+    float[] menuItemParallaxFractions = EMPTY_FRACTIONS;
+
+    int menuItemCount;
+
+    /**
+     * Whether each of the menu items was visible when the widths were measured.
+     * Only the first {@link #menuItemCount} elements are meaningful.
+     */
+    private boolean[] mMenuItemVisibilities = EMPTY_BOOLEANS;
+
+    /** The menu items of an item view, free of any framework class */
+    interface MenuItems {
+        int getMenuItemCount();
+
+        /** @return true if the menu item at the given index and its frame are both visible */
+        boolean isMenuItemVisible(int index);
+
+        int getMenuItemWidth(int index);
+    }
+
+    private final MenuItems mMenuItems = new MenuItems() {
+        @Override
+        public int getMenuItemCount() {
+            return mItemMenu.getChildCount();
+        }
+
+        @Override
+        public boolean isMenuItemVisible(int index) {
+            final ViewGroup menuItemBg = (ViewGroup) mItemMenu.getChildAt(index);
+            return menuItemBg.getVisibility() == View.VISIBLE
+                    && menuItemBg.getChildAt(0).getVisibility() == View.VISIBLE;
+        }
+
+        @Override
+        public int getMenuItemWidth(int index) {
+            return ((ViewGroup) mItemMenu.getChildAt(index)).getChildAt(0).getWidth();
+        }
+    };
+
+    /**
+     * Whether the menu has been made {@link View#INVISIBLE invisible} by us for being fully
+     * hidden behind or beside the content, so that it costs nothing to draw. Unlike being gone,
+     * it is still laid out, and so the cached widths stay up-to-date.
+     */
+    private boolean mMenuHidden;
+
+    /** Whether the layout direction of {@link #itemView} was right-to-left when last resolved */
+    boolean rtl;
+
+    /** The horizontal offset the children of {@link #itemView} are currently translated by */
+    float translationX;
+
+    /**
+     * The placeholder the menu of {@link #itemView} replaced when it was attached lazily,
+     * or null if the menu is not attached lazily or not attached yet
+     */
+    ViewStub menuStub;
+
+    /** The view type of {@link #itemView} when its menu was attached lazily */
+    int menuViewType;
+
+    /**
+     * Whether the parallax of the menu item frames is yet to be brought up-to-date with
+     * {@link #translationX}, in {@link SlidingItemMenuRecyclerView#ITEM_TRANSLATION_MODE_SCROLL
+     * scroll mode}
+     */
+    boolean parallaxPending;
+
+    /** The index of this state in the set of opened items, or -1 if the item view is closed */
+    int openedIndex = -1;
+
+    /** Whether an open/close animation is currently running for {@link #itemView} */
+    boolean animating;
+
+    /**
+     * Whether this state is held by the {@link ItemAnimationDriver}, which may still be true
+     * for a frame after the animation is canceled.
+     */
+    boolean inAnimationList;
+
+    /** The translation {@link #itemView} had when the current animation started */
+    float animStartX;
+    /** The distance for the current animation to translate {@link #itemView} */
+    float animDeltaX;
+    long animStartTime;
+    int animDuration;
+    /** The system animator duration scale the current animation was started with, never 0 */
+    float animDurationScale = 1f;
+    Interpolator animInterpolator;
+
+    /** Whether the current animation is a spring settling with the physics below */
+    boolean animSpring;
+    /** The velocity in pixels per second {@link #itemView} had when the spring started */
+    float animVelocity;
+    /** The angular frequency (the square root of the stiffness for a unit mass) of the spring */
+    float animNaturalFreq;
+    float animDampingRatio;
+
+    // Statistics of the current or the last animation, which survive re-targeting
+    long animFirstStartTime;
+    long animTotalDuration;
+    long animLastFrameNanos;
+    int animFrameCount;
+    int animDroppedFrameCount;
+    boolean animUsedLayers;
+
+    /**
+     * Whether the metrics of the drag that started the current animation are to be reported
+     * once the animation ends, in which case they are kept by the two fields below.
+     */
+    boolean metricsPending;
+    long metricsDownToFirstTranslation;
+    int metricsDragFrameCount;
+
+    /**
+     * The layer types the children of {@link #itemView} (except for the menu) and the menu item
+     * frames had before an animation started, in the order they are laid out.
+     */
+    private int[] mSavedLayerTypes = EMPTY_INTS;
+    private int mSavedLayerTypeCount;
+
+    /**
+     * The estimated number of bytes taken up by the hardware layers enabled for the current
+     * animation, or 0 if no layer is used for it.
+     */
+    long layerBytes;
+
+    ItemSwipeState(@NonNull ViewGroup itemView) {
+        this.itemView = itemView;
+    }
+
+    /**
+     * Brings the cached state up-to-date with the given menu of {@link #itemView}, re-measuring
+     * it only if it has been laid out since the last time, any of its menu items has been shown
+     * or hidden, or it is not the menu that we measured previously.
+     *
+     * @return the width of the given menu
+     */
+    int resolve(@NonNull FrameLayout itemMenu) {
+        rtl = Utils.isLayoutRtl(itemView);
+        bindMenu(itemMenu);
+        return resolveMenuItems(mMenuItems);
+    }
+
+    /**
+     * Same as {@link #resolve(FrameLayout)}, reading the menu items through the given interface,
+     * which is backed by the bound menu except in the tests
+     */
+    int resolveMenuItems(@NonNull MenuItems menuItems) {
+        if (!mMenuGeometryValid || menuItemVisibilitiesChanged(menuItems)) {
+            measureMenu(menuItems);
+            mMenuGeometryValid = true;
+        }
+        return itemMenuWidth;
+    }
+
+    /** Invalidates the cached widths, as the menu does when it is laid out again. */
+    void invalidateMenuGeometry() {
+        mMenuGeometryValid = false;
+    }
+
+    // A menu item made invisible or visible again is not laid out, but only redrawn.
+    private boolean menuItemVisibilitiesChanged(MenuItems menuItems) {
+        final int count = menuItems.getMenuItemCount();
+        if (count != menuItemCount) return true;
+
+        for (int i = 0; i < count; i++) {
+            if (menuItems.isMenuItemVisible(i) != mMenuItemVisibilities[i]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Starts tracking the layout of the given menu, if it is not the one tracked already. */
+    void bindMenu(@NonNull FrameLayout itemMenu) {
+        if (mItemMenu != itemMenu) {
+            if (mItemMenu != null) {
+                showMenu();
+                mItemMenu.removeOnLayoutChangeListener(this);
+            }
+            mItemMenu = itemMenu;
+            itemMenu.addOnLayoutChangeListener(this);
+            mMenuGeometryValid = false;
+        }
+    }
+
+    /** @return true if the given menu is invisible only because we hid it */
+    boolean isMenuHiddenByUs(@NonNull View itemMenu) {
+        return mMenuHidden && mItemMenu == itemMenu && itemMenu.getVisibility() == View.INVISIBLE;
+    }
+
+    /** Stops drawing the bound menu, which is to be called when it is fully hidden. */
+    void hideMenu() {
+        if (!mMenuHidden && mItemMenu != null && mItemMenu.getVisibility() == View.VISIBLE) {
+            mMenuHidden = true;
+            mItemMenu.setVisibility(View.INVISIBLE);
+        }
+    }
+
+    /** Resumes drawing the menu hidden by {@link #hideMenu()}, if any. */
+    void showMenu() {
+        if (mMenuHidden) {
+            mMenuHidden = false;
+            if (mItemMenu != null && mItemMenu.getVisibility() == View.INVISIBLE) {
+                mItemMenu.setVisibility(View.VISIBLE);
+            }
+        }
+    }
+
+    /** Forgets the menu measured previously, which is about to be detached from the item view */
+    void detachMenu() {
+        if (mItemMenu != null) {
+            showMenu();
+            mItemMenu.removeOnLayoutChangeListener(this);
+            mItemMenu = null;
+        }
+        mMenuGeometryValid = false;
+        itemMenuWidth = 0;
+        menuItemCount = 0;
+    }
+
+    private void measureMenu(MenuItems menuItems) {
+        final int menuItemCount = menuItems.getMenuItemCount();
+        if (menuItemWidths.length < menuItemCount) {
+            menuItemWidths = new int[menuItemCount];
+            menuItemParallaxFractions = new float[menuItemCount];
+            mMenuItemVisibilities = new boolean[menuItemCount];
+        }
+        int itemMenuWidth = 0;
+        for (int i = 0; i < menuItemCount; i++) {
+            menuItemWidths[i] = 0;
+            // We can not just add up the item menu width with the width of the menu item without
+            // checking the visibilities of it and its parents, as the visibility of a view
+            // changing from visible to gone will just exclude it from the subsequent layout passes
+            // and therefore will usually not have its width and height properties updated.
+            mMenuItemVisibilities[i] = menuItems.isMenuItemVisible(i);
+            if (mMenuItemVisibilities[i]) {
+                menuItemWidths[i] = menuItems.getMenuItemWidth(i);
+                itemMenuWidth += menuItemWidths[i];
+            }
+        }
+        int precedingWidth = 0;
+        for (int i = 0; i < menuItemCount; i++) {
+            // Sums up integers rather than fractions so that no rounding error accumulates.
+            menuItemParallaxFractions[i] = itemMenuWidth > 0
+                    ? (float) precedingWidth / (float) itemMenuWidth : 0;
+            precedingWidth += menuItemWidths[i];
+        }
+        this.menuItemCount = menuItemCount;
+        this.itemMenuWidth = itemMenuWidth;
+    }
+
+    /**
+     * Estimates how much memory would be used if the item children and the menu item frames
+     * were all rendered into hardware layers, assuming 4 bytes per pixel.
+     */
+    long estimateLayerBytes() {
+        final int itemChildCount = itemView.getChildCount();
+        final ViewGroup itemMenu = (ViewGroup) itemView.getChildAt(itemChildCount - 1);
+        long bytes = 0;
+        for (int i = 0; i < itemChildCount - 1; i++) {
+            final View child = itemView.getChildAt(i);
+            bytes += (long) child.getWidth() * child.getHeight();
+        }
+        for (int i = itemMenu.getChildCount() - 1; i >= 0; i--) {
+            final View child = itemMenu.getChildAt(i);
+            bytes += (long) child.getWidth() * child.getHeight();
+        }
+        return bytes * 4;
+    }
+
+    /**
+     * Saves the current layer types of the item children and the menu item frames into
+     * a reused array, and then has them all rendered into hardware layers.
+     */
+    @SuppressLint("ObsoleteSdkInt")
+    void enableHardwareLayers() {
+        final int itemChildCount = itemView.getChildCount();
+        final ViewGroup itemMenu = (ViewGroup) itemView.getChildAt(itemChildCount - 1);
+        final int menuItemCount = itemMenu.getChildCount();
+
+        final int count = itemChildCount - 1 + menuItemCount;
+        if (mSavedLayerTypes.length < count) {
+            mSavedLayerTypes = new int[count];
+        }
+        mSavedLayerTypeCount = count;
+        for (int i = 0; i < count; i++) {
+            final View child = i < itemChildCount - 1
+                    ? itemView.getChildAt(i) : itemMenu.getChildAt(i - itemChildCount + 1);
+            mSavedLayerTypes[i] = child.getLayerType();
+            child.setLayerType(View.LAYER_TYPE_HARDWARE, null);
+            if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB_MR1
+                    && ViewCompat.isAttachedToWindow(child)) {
+                child.buildLayer();
+            }
+        }
+    }
+
+    /** Restores the layer types saved by {@link #enableHardwareLayers()} */
+    void restoreLayerTypes() {
+        final int count = mSavedLayerTypeCount;
+        if (count == 0) return;
+
+        final int itemChildCount = itemView.getChildCount();
+        final ViewGroup itemMenu = (ViewGroup) itemView.getChildAt(itemChildCount - 1);
+        // The hierarchy is not expected to change during an animation, but be defensive anyway.
+        final int available = itemChildCount - 1 + itemMenu.getChildCount();
+        for (int i = 0; i < count && i < available; i++) {
+            final View child = i < itemChildCount - 1
+                    ? itemView.getChildAt(i) : itemMenu.getChildAt(i - itemChildCount + 1);
+            child.setLayerType(mSavedLayerTypes[i], null);
+        }
+        mSavedLayerTypeCount = 0;
+    }
+
+    @Override
+    public void onLayoutChange(View v, int left, int top, int right, int bottom,
+                               int oldLeft, int oldTop, int oldRight, int oldBottom) {
+        // The menu gets laid out whenever a descendant of it requests layout, e.g., for
+        // a size change or getting gone, so that is our chance to know the cached widths
+        // may be obsolete.
+        invalidateMenuGeometry();
+    }
+}
@@ -0,0 +1,124 @@
+package com.liuzhenlin.simrv;
+
+import android.graphics.Rect;
+import android.view.View;
+import android.view.ViewGroup;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.recyclerview.widget.GridLayoutManager;
+import androidx.recyclerview.widget.LinearLayoutManager;
+import androidx.recyclerview.widget.RecyclerView;
+
+/**
+ * Finds the item view under a touch point, taking advantage of the order the layout manager
+ * lays out the children in whenever it is known, so that the hit rectangles of a logarithmic
+ * rather than linear number of the children are computed for a touch on an item view.
+ */
+final class ItemViewFinder {
+    private ItemViewFinder() {
+    }
+
+    /**
+     * Finds the item view containing the given point in the coordinates of the given parent.
+     *
+     * @param outHitRect set to the hit rectangle of the item view found, or empty if none
+     * @return the item view containing the point, or null if it is on no item view
+     */
+    @Nullable
+    static ViewGroup findItemViewUnder(@NonNull RecyclerView parent, int x, int y,
+                                       @NonNull Rect outHitRect) {
+        final RecyclerView.LayoutManager lm = parent.getLayoutManager();
+        final RecyclerView.ItemAnimator animator = parent.getItemAnimator();
+        // The children may overlap or be out of order while the items are being animated,
+        // or when some of them are translated in Y, e.g., by an ItemTouchHelper, in which case
+        // a child drawn over the one found in the rows may also contain the point.
+        if (lm instanceof LinearLayoutManager
+                && ((LinearLayoutManager) lm).getOrientation() == RecyclerView.VERTICAL
+                && (animator == null || !animator.isRunning())
+                && !hasChildTranslatedInY(parent)) {
+            final int spanCount = lm instanceof GridLayoutManager
+                    ? ((GridLayoutManager) lm).getSpanCount() : 1;
+            final ViewGroup itemView = findItemViewUnderInRows(parent, x, y,
+                    ((LinearLayoutManager) lm).getReverseLayout(), spanCount, outHitRect);
+            // The tops of the children may still be out of order, e.g., for the rows of
+            // different top margins in a grid, so only a hit is to be trusted.
+            if (itemView != null) {
+                return itemView;
+            }
+        }
+        return findItemViewUnderLinearly(parent, x, y, outHitRect);
+    }
+
+    private static boolean hasChildTranslatedInY(RecyclerView parent) {
+        for (int i = parent.getChildCount() - 1; i >= 0; i--) {
+            if (parent.getChildAt(i).getTranslationY() != 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Binary searches the children laid out in rows from top to bottom (or from bottom to top
+     * if reversed), each row of which consists of at most 'spanCount' children of the same top.
+     */
+    @Nullable
+    static ViewGroup findItemViewUnderInRows(@NonNull RecyclerView parent, int x, int y,
+                                             boolean reversed, int spanCount,
+                                             @NonNull Rect outHitRect) {
+        final int childCount = parent.getChildCount();
+        // Finds the last child, in top-to-bottom order, whose top is not below the point.
+        int low = 0;
+        int high = childCount - 1;
+        int last = -1;
+        while (low <= high) {
+            final int middle = (low + high) >>> 1;
+            parent.getChildAt(reversed ? childCount - 1 - middle : middle).getHitRect(outHitRect);
+            if (outHitRect.top <= y) {
+                last = middle;
+                low = middle + 1;
+            } else {
+                high = middle - 1;
+            }
+        }
+        // Then checks the children in its row, which share the same top but may differ in height.
+        if (last >= 0) {
+            int rowTop = Integer.MIN_VALUE;
+            for (int i = last; i >= 0 && i > last - spanCount; i--) {
+                final View child = parent.getChildAt(reversed ? childCount - 1 - i : i);
+                child.getHitRect(outHitRect);
+                if (rowTop == Integer.MIN_VALUE) {
+                    rowTop = outHitRect.top;
+                } else if (outHitRect.top != rowTop) {
+                    break;
+                }
+                if (outHitRect.contains(x, y)) {
+                    if (child instanceof ViewGroup) {
+                        return (ViewGroup) child;
+                    }
+                    break;
+                }
+            }
+        }
+        outHitRect.setEmpty();
+        return null;
+    }
+
+    /** Checks every child from the topmost drawn one down to the bottommost one. */
+    @Nullable
+    static ViewGroup findItemViewUnderLinearly(@NonNull RecyclerView parent, int x, int y,
+                                               @NonNull Rect outHitRect) {
+        for (int i = parent.getChildCount() - 1; i >= 0; i--) {
+            final View child = parent.getChildAt(i);
+            if (!(child instanceof ViewGroup)) continue;
+
+            child.getHitRect(outHitRect);
+            if (outHitRect.contains(x, y)) {
+                return (ViewGroup) child;
+            }
+        }
+        outHitRect.setEmpty();
+        return null;
+    }
+}
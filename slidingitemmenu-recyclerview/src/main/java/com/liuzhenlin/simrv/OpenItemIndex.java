@@ -0,0 +1,329 @@
+package com.liuzhenlin.simrv;
+
+import java.util.Arrays;
+
+/**
+ * An index of the adapter positions of the items whose menus are open, along with their stable
+ * ids if the adapter has stable ids, which is kept in step with the changes of the adapter
+ * rather than being tied to the item views that happen to show the items.
+ * <p>
+ * The positions are kept sorted in an array, so that a change of a range of the adapter only
+ * has to binary search the range and shift the positions after it, leaving the positions before
+ * it untouched. Nothing is allocated except for the array to grow, or the adapter to be
+ * {@link #remapByIds(ItemIds) remapped by the stable ids} after an unspecified change.
+ */
+final class OpenItemIndex {
+    /** Same as {@code RecyclerView.NO_ID} */
+    static final long NO_ID = -1;
+
+    /** The stable ids of the items of an adapter, free of any framework class */
+    interface ItemIds {
+        int getItemCount();
+
+        long getItemId(int position);
+    }
+
+    private int[] mPositions = new int[4];
+    private long[] mIds = new long[4];
+    private int mSize;
+
+    int size() {
+        return mSize;
+    }
+
+    int positionAt(int index) {
+        return mPositions[index];
+    }
+
+    long idAt(int index) {
+        return mIds[index];
+    }
+
+    void clear() {
+        mSize = 0;
+    }
+
+    boolean contains(int position) {
+        return Arrays.binarySearch(mPositions, 0, mSize, position) >= 0;
+    }
+
+    /**
+     * Adds the item at the given position, or updates its id if it is in the index already.
+     *
+     * @param id the stable id of the item, or {@link #NO_ID}
+     */
+    void add(int position, long id) {
+        int index = Arrays.binarySearch(mPositions, 0, mSize, position);
+        if (index >= 0) {
+            mIds[index] = id;
+            return;
+        }
+        index = -index - 1;
+        if (mSize == mPositions.length) {
+            mPositions = Arrays.copyOf(mPositions, mSize << 1);
+            mIds = Arrays.copyOf(mIds, mSize << 1);
+        }
+        System.arraycopy(mPositions, index, mPositions, index + 1, mSize - index);
+        System.arraycopy(mIds, index, mIds, index + 1, mSize - index);
+        mPositions[index] = position;
+        mIds[index] = id;
+        mSize++;
+    }
+
+    /** Removes all the items except for the one at the given position, if it is in the index. */
+    void retain(int position) {
+        final int index = Arrays.binarySearch(mPositions, 0, mSize, position);
+        if (index > 0) {
+            mPositions[0] = position;
+            mIds[0] = mIds[index];
+        }
+        mSize = index >= 0 ? 1 : 0;
+    }
+
+    /** @return true if the item at the given position was in the index */
+    boolean remove(int position) {
+        final int index = Arrays.binarySearch(mPositions, 0, mSize, position);
+        if (index < 0) {
+            return false;
+        }
+        removeRange(index, index + 1);
+        return true;
+    }
+
+    private void removeRange(int fromIndex, int toIndex) {
+        System.arraycopy(mPositions, toIndex, mPositions, fromIndex, mSize - toIndex);
+        System.arraycopy(mIds, toIndex, mIds, fromIndex, mSize - toIndex);
+        mSize -= toIndex - fromIndex;
+    }
+
+    /** @return the index of the first position not less than the given one */
+    private int ceilingIndex(int position) {
+        final int index = Arrays.binarySearch(mPositions, 0, mSize, position);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    void onItemRangeInserted(int positionStart, int itemCount) {
+        for (int i = ceilingIndex(positionStart); i < mSize; i++) {
+            mPositions[i] += itemCount;
+        }
+    }
+
+    void onItemRangeRemoved(int positionStart, int itemCount) {
+        final int from = ceilingIndex(positionStart);
+        final int to = ceilingIndex(positionStart + itemCount);
+        removeRange(from, to);
+        for (int i = from; i < mSize; i++) {
+            mPositions[i] -= itemCount;
+        }
+    }
+
+    /**
+     * Moves the items as RecyclerView moves them: the range is taken out of its place and
+     * then inserted at the given position of the remaining items.
+     */
+    void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+        if (fromPosition == toPosition || itemCount <= 0) return;
+
+        // Only the items between the two ranges are affected, and keep their relative order,
+        // as do the moved items.
+        final int low = Math.min(fromPosition, toPosition);
+        final int high = Math.max(fromPosition, toPosition) + itemCount;
+        final int lowIndex = ceilingIndex(low);
+        final int highIndex = ceilingIndex(high);
+        final int movedFrom = ceilingIndex(fromPosition);
+        final int movedTo = ceilingIndex(fromPosition + itemCount);
+        final int shift = toPosition - fromPosition;
+        final int othersShift = fromPosition < toPosition ? -itemCount : itemCount;
+        for (int i = lowIndex; i < highIndex; i++) {
+            mPositions[i] += i >= movedFrom && i < movedTo ? shift : othersShift;
+        }
+        // Rotates the moved entries into their sorted place.
+        if (fromPosition < toPosition) {
+            rotate(lowIndex, movedTo, highIndex);
+        } else {
+            rotate(lowIndex, movedFrom, highIndex);
+        }
+    }
+
+    /** Swaps the entries of [from, middle) and [middle, to) in place. */
+    private void rotate(int from, int middle, int to) {
+        reverse(from, middle);
+        reverse(middle, to);
+        reverse(from, to);
+    }
+
+    private void reverse(int from, int to) {
+        for (int i = from, j = to - 1; i < j; i++, j--) {
+            final int position = mPositions[i];
+            mPositions[i] = mPositions[j];
+            mPositions[j] = position;
+            final long id = mIds[i];
+            mIds[i] = mIds[j];
+            mIds[j] = id;
+        }
+    }
+
+    /**
+     * Drops the positions not less than the given item count, for when the adapter has changed
+     * in an unspecified way and the items are not identifiable by stable ids.
+     */
+    void truncate(int itemCount) {
+        mSize = ceilingIndex(itemCount);
+    }
+
+    /**
+     * Encodes the positions compactly for saving, as the runs of consecutive positions, each of
+     * which takes the gap from the end of the previous run and its length in unsigned varints.
+     * This takes a few bytes however many items are open in a row, e.g., after a select all.
+     * The ids are left out, and are to be saved apart through {@link #getIds()} if the adapter
+     * has stable ids.
+     */
+    byte[] encodePositions() {
+        int byteCount = 0;
+        for (int i = 0, end = 0; i < mSize; ) {
+            final int start = mPositions[i];
+            int runEnd = start + 1;
+            for (i++; i < mSize && mPositions[i] == runEnd; i++) {
+                runEnd++;
+            }
+            byteCount += varintSize(start - end) + varintSize(runEnd - start);
+            end = runEnd;
+        }
+        final byte[] bytes = new byte[byteCount];
+        int offset = 0;
+        for (int i = 0, end = 0; i < mSize; ) {
+            final int start = mPositions[i];
+            int runEnd = start + 1;
+            for (i++; i < mSize && mPositions[i] == runEnd; i++) {
+                runEnd++;
+            }
+            offset = writeVarint(bytes, offset, start - end);
+            offset = writeVarint(bytes, offset, runEnd - start);
+            end = runEnd;
+        }
+        return bytes;
+    }
+
+    /** @return the ids of the items in the order of their positions */
+    long[] getIds() {
+        return Arrays.copyOf(mIds, mSize);
+    }
+
+    /**
+     * Replaces the positions in the index with the ones encoded by {@link #encodePositions()},
+     * along with the given ids.
+     *
+     * @param ids the ids returned by {@link #getIds()} along with the encoded positions, or null
+     *            to leave the items without ids, which are then kept by their positions
+     * @throws IllegalArgumentException if the given bytes are not encoded positions or
+     *                                  the number of the ids does not match theirs
+     */
+    void decodePositions(byte[] bytes, long[] ids) {
+        decodePositions(bytes);
+        if (ids != null) {
+            if (ids.length != mSize) {
+                final int size = mSize;
+                mSize = 0;
+                throw new IllegalArgumentException(
+                        "Expected " + size + " open item ids but got " + ids.length);
+            }
+            System.arraycopy(ids, 0, mIds, 0, mSize);
+        }
+    }
+
+    /**
+     * Replaces the positions in the index with the ones encoded by {@link #encodePositions()},
+     * all without ids.
+     *
+     * @throws IllegalArgumentException if the given bytes are not encoded positions
+     */
+    void decodePositions(byte[] bytes) {
+        mSize = 0;
+        long end = 0;
+        long gap = -1;
+        for (int offset = 0; offset < bytes.length; ) {
+            long value = 0;
+            byte b;
+            int shift = 0;
+            do {
+                if (offset == bytes.length || shift > 28) {
+                    mSize = 0;
+                    throw new IllegalArgumentException("Malformed varint at offset " + offset);
+                }
+                b = bytes[offset++];
+                value |= (long) (b & 0x7f) << shift;
+                shift += 7;
+            } while (b < 0);
+
+            if (gap < 0) {
+                gap = value;
+                continue;
+            }
+            final long start = end + gap;
+            end = start + value;
+            gap = -1;
+            if (value == 0 || end > Integer.MAX_VALUE) {
+                mSize = 0;
+                throw new IllegalArgumentException("Malformed run of open item positions");
+            }
+            for (int position = (int) start; position < end; position++) {
+                // Positions are added in ascending order, so this appends.
+                add(position, NO_ID);
+            }
+        }
+        if (gap >= 0) {
+            mSize = 0;
+            throw new IllegalArgumentException("Truncated run of open item positions");
+        }
+    }
+
+    private static int varintSize(int value) {
+        int size = 1;
+        while ((value >>>= 7) != 0) {
+            size++;
+        }
+        return size;
+    }
+
+    private static int writeVarint(byte[] bytes, int offset, int value) {
+        while ((value & ~0x7f) != 0) {
+            bytes[offset++] = (byte) (value & 0x7f | 0x80);
+            value >>>= 7;
+        }
+        bytes[offset++] = (byte) value;
+        return offset;
+    }
+
+    /**
+     * Finds the items by their stable ids again after the adapter has changed in an unspecified
+     * way, dropping the ones no longer in it. This takes one pass over the adapter.
+     * The items without ids are kept by their positions instead, as {@link #truncate(int)} does.
+     */
+    void remapByIds(ItemIds itemIds) {
+        if (mSize == 0) return;
+
+        final int size = mSize;
+        final int[] positions = Arrays.copyOf(mPositions, size);
+        final long[] ids = Arrays.copyOf(mIds, size);
+        final long[] sortedIds = ids.clone();
+        Arrays.sort(sortedIds);
+        int idCount = 0;
+        for (long id : ids) {
+            if (id != NO_ID) idCount++;
+        }
+        mSize = 0;
+        final int itemCount = itemIds.getItemCount();
+        for (int position = 0; position < itemCount && mSize < idCount; position++) {
+            final long id = itemIds.getItemId(position);
+            if (id != NO_ID && Arrays.binarySearch(sortedIds, id) >= 0) {
+                // Positions are added in ascending order, so this appends.
+                add(position, id);
+            }
+        }
+        for (int i = 0; i < size; i++) {
+            if (ids[i] == NO_ID && positions[i] < itemCount && !contains(positions[i])) {
+                add(positions[i], NO_ID);
+            }
+        }
+    }
+}
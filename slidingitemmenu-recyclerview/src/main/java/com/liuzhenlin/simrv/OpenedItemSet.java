@@ -0,0 +1,74 @@
+package com.liuzhenlin.simrv;
+
+import androidx.annotation.NonNull;
+
+/**
+ * A set of the swipe states of opened item views, of which membership tests, additions and
+ * removals all take constant time, as each element records its own index in the backing array.
+ * <p>
+ * The backing array only grows (by doubling) and is never shrunk, so no allocation happens in
+ * the steady state where the item views get opened and closed over and over again.
+ */
+final class OpenedItemSet {
+    private ItemSwipeState[] mItems = new ItemSwipeState[4];
+    private int mSize;
+
+    int size() {
+        return mSize;
+    }
+
+    @NonNull
+    ItemSwipeState get(int index) {
+        return mItems[index];
+    }
+
+    boolean contains(@NonNull ItemSwipeState item) {
+        final int index = item.openedIndex;
+        // Also check the slot's identity so that a stale index can never give a false positive.
+        return index >= 0 && index < mSize && mItems[index] == item;
+    }
+
+    /** @return true if the given item was not yet in this set */
+    boolean add(@NonNull ItemSwipeState item) {
+        if (contains(item)) {
+            return false;
+        }
+        if (mSize == mItems.length) {
+            final ItemSwipeState[] items = new ItemSwipeState[mSize << 1];
+            System.arraycopy(mItems, 0, items, 0, mSize);
+            mItems = items;
+        }
+        item.openedIndex = mSize;
+        mItems[mSize++] = item;
+        return true;
+    }
+
+    /**
+     * Removes the given item from this set, moving the last element into its slot.
+     *
+     * @return true if the given item was in this set
+     */
+    boolean remove(@NonNull ItemSwipeState item) {
+        if (!contains(item)) {
+            return false;
+        }
+        final int index = item.openedIndex;
+        final int last = --mSize;
+        if (index != last) {
+            final ItemSwipeState lastItem = mItems[last];
+            lastItem.openedIndex = index;
+            mItems[index] = lastItem;
+        }
+        mItems[last] = null;
+        item.openedIndex = -1;
+        return true;
+    }
+
+    void clear() {
+        for (int i = 0; i < mSize; i++) {
+            mItems[i].openedIndex = -1;
+            mItems[i] = null;
+        }
+        mSize = 0;
+    }
+}
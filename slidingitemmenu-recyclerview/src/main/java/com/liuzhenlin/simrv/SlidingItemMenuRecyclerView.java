@@ -5,32 +5,44 @@
 
 package com.liuzhenlin.simrv;
 
-import android.animation.Animator;
-import android.animation.AnimatorListenerAdapter;
-import android.animation.ValueAnimator;
 import android.annotation.SuppressLint;
+import android.content.ContentResolver;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Rect;
 import android.os.Build;
+import android.os.Parcel;
+import android.os.Parcelable;
+import android.os.SystemClock;
+import android.provider.Settings;
+import android.util.DisplayMetrics;
 import android.util.AttributeSet;
+import android.util.Log;
+import android.view.Display;
+import android.view.LayoutInflater;
 import android.view.MotionEvent;
 import android.view.VelocityTracker;
 import android.view.View;
 import android.view.ViewConfiguration;
 import android.view.ViewGroup;
 import android.view.ViewParent;
+import android.view.ViewStub;
+import android.view.ViewTreeObserver;
 import android.view.animation.Interpolator;
 import android.view.animation.OvershootInterpolator;
 import android.widget.FrameLayout;
 
+import androidx.annotation.IntDef;
+import androidx.annotation.NonNull;
 import androidx.annotation.Nullable;
-import androidx.collection.SimpleArrayMap;
+import androidx.annotation.VisibleForTesting;
 import androidx.core.view.ViewCompat;
+import androidx.customview.view.AbsSavedState;
 import androidx.recyclerview.widget.RecyclerView;
 
-import java.util.LinkedList;
-import java.util.List;
+import java.io.IOException;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
 
 /**
  * @author <a href="mailto:2233788867@qq.com">刘振林</a>
@@ -46,28 +58,22 @@ public class SlidingItemMenuRecyclerView extends RecyclerView {
      */
     private boolean mIsItemDraggable;
 
-    /** True, if an item view is being dragged by the user. */
-    private boolean mIsItemBeingDragged;
-
-    /**
-     * Whether or not some item view is fully open when this view receives the
-     * {@link MotionEvent#ACTION_DOWN} event.
-     */
-    private boolean mHasItemFullyOpenOnActionDown;
-
     /** Distance to travel before drag may begin */
     protected final int mTouchSlop;
 
-    private int mDownX;
-    private int mDownY;
-
-    private final float[] mTouchX = new float[2];
-    private final float[] mTouchY = new float[2];
+    /** Makes the decisions on the touch events for swiping the item views */
+    private final SwipeGestureEngine mGestureEngine;
 
     private VelocityTracker mVelocityTracker;
 
-    /** Minimum gesture speed along the x axis to automatically scroll item views */
-    private final float mItemMinimumFlingVelocity; // 200 dp/s
+    /**
+     * @see #isItemDragPredictionEnabled()
+     * @see #setItemDragPredictionEnabled(boolean)
+     */
+    private boolean mIsItemDragPredictionEnabled;
+
+    /** The furthest ahead of the latest touch sample the finger position is predicted */
+    private static final int MAX_DRAG_PREDICTION_MILLIS = 20;
 
     /**
      * The bounds of the currently touched item View {@link #mActiveItem} (relative to current view).
@@ -81,20 +87,82 @@ public class SlidingItemMenuRecyclerView extends RecyclerView {
     /** The item view that is currently being touched or dragged by the user */
     private ViewGroup mActiveItem;
 
-    /** The item view that is fully open or to be opened through the animator associated to it */
+    /** The swipe state of {@link #mActiveItem} */
+    private ItemSwipeState mActiveItemState;
+
+    /**
+     * The item view that is fully open or to be opened through the animator associated to it,
+     * which is the last one opened if several item views are opened at once
+     */
     private ViewGroup mFullyOpenedItem;
 
     /** The set of opened item views */
-    private final List<ViewGroup> mOpenedItems = new LinkedList<>();
+    private final OpenedItemSet mOpenedItems = new OpenedItemSet();
+
+    /**
+     * The adapter positions of the items whose menus are fully open, which unlike the item views
+     * in {@link #mOpenedItems} are kept in step with the changes of the adapter
+     */
+    /*synthetic*/ final OpenItemIndex mOpenItemIndex = new OpenItemIndex();
+
+    /**
+     * Whether there may be item views whose translations do not match {@link #mOpenItemIndex},
+     * e.g., the ones just bound to other items, which are to be brought in line before drawing
+     */
+    /*synthetic*/ boolean mOpenItemIndexSyncPending;
+
+    /** Whether the item views are being closed on detaching from the window */
+    private boolean mDetachingFromWindow;
+
+    /** The adapter the {@link #mOpenItemIndexUpdater} is registered with */
+    private Adapter<?> mObservedAdapter;
+
+    private final AdapterDataObserver mOpenItemIndexUpdater = new AdapterDataObserver() {
+        @Override
+        public void onChanged() {
+            final Adapter<?> adapter = getAdapter();
+            if (adapter == null) {
+                mOpenItemIndex.clear();
+            } else if (adapter.hasStableIds()) {
+                mOpenItemIndex.remapByIds(new OpenItemIndex.ItemIds() {
+                    @Override
+                    public int getItemCount() {
+                        return adapter.getItemCount();
+                    }
+
+                    @Override
+                    public long getItemId(int position) {
+                        return adapter.getItemId(position);
+                    }
+                });
+            } else {
+                mOpenItemIndex.truncate(adapter.getItemCount());
+            }
+            // The item views are rebound in place, possibly to the items of other positions.
+            mOpenItemIndexSyncPending = true;
+        }
+
+        @Override
+        public void onItemRangeInserted(int positionStart, int itemCount) {
+            mOpenItemIndex.onItemRangeInserted(positionStart, itemCount);
+        }
 
-    /** Tag used to get the width of an item view's menu */
-    private static final int TAG_ITEM_MENU_WIDTH = R.id.tag_itemMenuWidth;
+        @Override
+        public void onItemRangeRemoved(int positionStart, int itemCount) {
+            mOpenItemIndex.onItemRangeRemoved(positionStart, itemCount);
+        }
+
+        @Override
+        public void onItemRangeMoved(int fromPosition, int toPosition, int itemCount) {
+            mOpenItemIndex.onItemRangeMoved(fromPosition, toPosition, itemCount);
+        }
+    };
 
-    /** Tag used to get the widths of the menu items of an item view */
-    private static final int TAG_MENU_ITEM_WIDTHS = R.id.tag_menuItemWidths;
+    /** The engine advancing the open/close animations of all the item views once per frame */
+    private final ItemAnimationDriver mItemAnimationDriver = new ItemAnimationDriver(this);
 
-    /** Tag used to get the animator of the item view to which it associated */
-    private static final int TAG_ITEM_ANIMATOR = R.id.tag_itemAnimator;
+    /** Tag used to get the swipe state of the item view to which it associated */
+    private static final int TAG_ITEM_SWIPE_STATE = R.id.tag_itemSwipeState;
 
     /**
      * Time interval in milliseconds of automatically scrolling item views
@@ -107,10 +175,233 @@ public class SlidingItemMenuRecyclerView extends RecyclerView {
     /** Default value of {@link #mItemScrollDuration} if no value is set for it */
     public static final int DEFAULT_ITEM_SCROLL_DURATION = 500; // ms
 
+    /**
+     * @see #getItemSettleMode()
+     * @see #setItemSettleMode(int)
+     */
+    @ItemSettleMode
+    private int mItemSettleMode;
+
+    /**
+     * Animate item views to open/close over the {@link #getItemScrollDuration() item scroll
+     * duration}. This is the default mode.
+     */
+    public static final int ITEM_SETTLE_MODE_DURATION = 0;
+
+    /**
+     * Settle item views to open/close with a spring, which starts with the velocity the user's
+     * finger lifted at and finishes as soon as the item view comes to rest.
+     */
+    public static final int ITEM_SETTLE_MODE_SPRING = 1;
+
+    @IntDef({ITEM_SETTLE_MODE_DURATION, ITEM_SETTLE_MODE_SPRING})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface ItemSettleMode {
+    }
+
+    /** Stiffness of the spring used in {@link #ITEM_SETTLE_MODE_SPRING spring mode} */
+    private static final float ITEM_SPRING_STIFFNESS = 1500f;
+    /** Damping ratio of the spring for opening an item view, which overshoots a bit */
+    private static final float ITEM_SPRING_OPEN_DAMPING_RATIO = 0.75f;
+    /** Damping ratio of the spring for closing an item view, which never overshoots */
+    private static final float ITEM_SPRING_CLOSE_DAMPING_RATIO = 1f;
+
+    /**
+     * @see #getItemLayerStrategy()
+     * @see #setItemLayerStrategy(int)
+     */
+    @ItemLayerStrategy
+    private int mItemLayerStrategy;
+
+    /** Never render the animated item views into hardware layers. */
+    public static final int ITEM_LAYER_STRATEGY_NEVER = 0;
+
+    /**
+     * Always render the animated item views into hardware layers,
+     * as long as the {@link #getItemLayerMemoryBudget() memory budget} permits.
+     */
+    public static final int ITEM_LAYER_STRATEGY_ALWAYS = 1;
+
+    /**
+     * Render an animated item view into hardware layers only if few item views are being
+     * animated concurrently and the layers for it would take up no more than a fraction of
+     * the {@link #getItemLayerMemoryBudget() memory budget}. This is the default strategy.
+     */
+    public static final int ITEM_LAYER_STRATEGY_ADAPTIVE = 2;
+
+    @IntDef({ITEM_LAYER_STRATEGY_NEVER, ITEM_LAYER_STRATEGY_ALWAYS, ITEM_LAYER_STRATEGY_ADAPTIVE})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface ItemLayerStrategy {
+    }
+
+    /**
+     * @see #getItemTranslationMode()
+     * @see #setItemTranslationMode(int)
+     */
+    @ItemTranslationMode
+    private int mItemTranslationMode;
+
+    /**
+     * Move an item view by translating each of its children, with the menu item frames
+     * translated in addition for the parallax of the menu. This is the default mode.
+     */
+    public static final int ITEM_TRANSLATION_MODE_CHILDREN = 0;
+
+    /**
+     * Move an item view by scrolling its content, which is a single operation per frame however
+     * many children it has, with the parallax of the menu applied once per frame before drawing.
+     */
+    public static final int ITEM_TRANSLATION_MODE_SCROLL = 1;
+
+    @IntDef({ITEM_TRANSLATION_MODE_CHILDREN, ITEM_TRANSLATION_MODE_SCROLL})
+    @Retention(RetentionPolicy.SOURCE)
+    public @interface ItemTranslationMode {
+    }
+
+    /** Whether there may be item views whose menu parallax is pending in scroll mode */
+    private boolean mItemParallaxPending;
+
+    /** Whether there may be item views attached whose menus have not been measured yet */
+    /*synthetic*/ boolean mItemMenuGeometryPending;
+
+    /** Measures the menus of the item views attached in the last frame */
+    /*synthetic*/ final Runnable mItemMenuGeometryResolver = new Runnable() {
+        @Override
+        public void run() {
+            for (int i = getChildCount() - 1; i >= 0; i--) {
+                final View child = getChildAt(i);
+                if (child instanceof ViewGroup) {
+                    final FrameLayout itemMenu = getItemMenu((ViewGroup) child);
+                    if (itemMenu != null) {
+                        // Nothing is done if the cached geometry is still valid.
+                        obtainItemSwipeState((ViewGroup) child).resolve(itemMenu);
+                    }
+                }
+            }
+        }
+    };
+
+    /** Applies the pending menu parallax of the item views right before they are drawn */
+    private final ViewTreeObserver.OnPreDrawListener mItemParallaxUpdater =
+            new ViewTreeObserver.OnPreDrawListener() {
+                @Override
+                public boolean onPreDraw() {
+                    // The menus of the item views attached in this frame have been laid out
+                    // by now, so measure them in the idle time after it, as the prefetch of
+                    // RecyclerView does, rather than on the first touch on them.
+                    if (mOpenItemIndexSyncPending) {
+                        mOpenItemIndexSyncPending = false;
+                        syncItemViewsWithOpenItemIndex();
+                    }
+                    if (mItemMenuGeometryPending) {
+                        mItemMenuGeometryPending = false;
+                        removeCallbacks(mItemMenuGeometryResolver);
+                        post(mItemMenuGeometryResolver);
+                    }
+                    if (mItemParallaxPending) {
+                        mItemParallaxPending = false;
+                        for (int i = getChildCount() - 1; i >= 0; i--) {
+                            final View child = getChildAt(i);
+                            if (child instanceof ViewGroup) {
+                                final ItemSwipeState state = getItemSwipeState((ViewGroup) child);
+                                if (state != null && state.parallaxPending) {
+                                    applyItemMenuParallax(state);
+                                }
+                            }
+                        }
+                    }
+                    return true;
+                }
+            };
+
+    /**
+     * The maximum number of concurrently animated item views to use hardware layers for
+     * with the {@link #ITEM_LAYER_STRATEGY_ADAPTIVE adaptive} strategy, each of which is also
+     * allowed to take up at most the reciprocal of this of the memory budget.
+     */
+    private static final int ADAPTIVE_MAX_LAYERED_ITEM_ANIMATIONS = 3;
+
+    /**
+     * @see #getItemLayerMemoryBudget()
+     * @see #setItemLayerMemoryBudget(long)
+     */
+    private long mItemLayerMemoryBudget;
+
+    /** The estimated number of bytes taken up by the hardware layers of all animated item views */
+    private long mItemLayerBytesInUse;
+
+    /** @see #setItemMenuFactory(ItemMenuFactory) */
+    private ItemMenuFactory mItemMenuFactory;
+
+    /** The lazily attached menus detached from the recycled item views */
+    private final ItemMenuPool mItemMenuPool = new ItemMenuPool();
+
+    /** @see #setItemMenuBinder(ItemMenuBinder) */
+    private ItemMenuBinder mItemMenuBinder;
+
+    /**
+     * Binder of the menus attached in place of the {@link ViewStub} placeholders of the item
+     * views, which may be reused from recycled item views and thus show the content of the items
+     * they were bound to previously.
+     */
+    public interface ItemMenuBinder {
+        /**
+         * Binds the given menu, either newly created or reused from a recycled item view of the
+         * same type, to the item represented by the given holder.
+         */
+        void onBindItemMenu(@NonNull FrameLayout itemMenu, @NonNull ViewHolder holder);
+    }
+
+    /**
+     * Factory creating the menus of the item views that declare a {@link ViewStub} placeholder
+     * as their last child, whose menus are only created when they are first dragged or opened.
+     */
+    public interface ItemMenuFactory extends ItemMenuBinder {
+        /**
+         * Creates a menu for an item view of the given type, which must be structured the same
+         * as the menus declared directly in the item views.
+         */
+        @NonNull
+        FrameLayout onCreateItemMenu(@NonNull SlidingItemMenuRecyclerView parent, int viewType);
+    }
+
+    /** @see #setOnItemSwipeMetricsListener(OnItemSwipeMetricsListener) */
+    private OnItemSwipeMetricsListener mOnItemSwipeMetricsListener;
+
+    /** Records the touch events dispatched to this view, if set */
+    private TouchEventRecorder mTouchEventRecorder;
+
+    /** The metrics reused for every swipe reported to {@link #mOnItemSwipeMetricsListener} */
+    private final ItemSwipeMetrics mItemSwipeMetrics = new ItemSwipeMetrics();
+
+    /**
+     * Time in milliseconds from the {@link MotionEvent#ACTION_DOWN} event to the first
+     * translation of {@link #mActiveItem} during the current drag, or -1 if not yet translated
+     */
+    private long mDownToFirstTranslationMillis = -1;
+
+    /** The number of times {@link #mActiveItem} has been translated during the current drag */
+    private int mDragFrameCount;
+
+    /**
+     * Listener receiving the performance metrics of each swipe of the item views by the user.
+     */
+    public interface OnItemSwipeMetricsListener {
+        /**
+         * Called once the item view swiped by the user has settled open or closed after
+         * his/her finger lifted.
+         *
+         * @param metrics the metrics of the swipe, valid only during this call
+         */
+        void onItemSwipeMetrics(
+                @NonNull SlidingItemMenuRecyclerView parent, @NonNull ItemSwipeMetrics metrics);
+    }
+
+    // Sampled into lookup tables once, so that no curve is evaluated for every animation frame.
     private static final Interpolator sViscousFluidInterpolator =
-            new ViscousFluidInterpolator(6.66f);
+            new LookupTableInterpolator(new ViscousFluidInterpolator(6.66f));
     private static final Interpolator sOvershootInterpolator =
-            new OvershootInterpolator(1.0f);
+            new LookupTableInterpolator(new OvershootInterpolator(1.0f));
 
     /**
      * @deprecated Use {@link #isItemDraggable()} instead
@@ -145,6 +436,23 @@ public class SlidingItemMenuRecyclerView extends RecyclerView {
         mIsItemDraggable = draggable;
     }
 
+    /**
+     * @return whether the dragged item views follow the predicted position of the user's finger
+     */
+    public boolean isItemDragPredictionEnabled() {
+        return mIsItemDragPredictionEnabled;
+    }
+
+    /**
+     * Sets whether the dragged item views follow where the user's finger is predicted to be
+     * one frame later, extrapolated from its recent motion, instead of where it was last
+     * reported to be, which visibly lags behind a fast moving finger on high refresh rate
+     * displays. The prediction never goes further than the finger has recently moved.
+     */
+    public void setItemDragPredictionEnabled(boolean enabled) {
+        mIsItemDragPredictionEnabled = enabled;
+    }
+
     /**
      * Gets the lasting time of the animator for opening/closing the item view to which
      * the animator associated.
@@ -169,6 +477,214 @@ public class SlidingItemMenuRecyclerView extends RecyclerView {
         mItemScrollDuration = duration;
     }
 
+    /**
+     * @return the way the item views are animated to open/close on their own
+     */
+    @ItemSettleMode
+    public int getItemSettleMode() {
+        return mItemSettleMode;
+    }
+
+    /**
+     * Sets the way the item views are animated to open/close on their own, i.e., after the user
+     * lifts his/her finger or through the code.
+     * <p>
+     * In {@link #ITEM_SETTLE_MODE_SPRING spring mode}, the {@link #getItemScrollDuration()
+     * item scroll duration} is ignored except that item views are not animated at all if it is 0.
+     *
+     * @param mode either {@link #ITEM_SETTLE_MODE_DURATION} or {@link #ITEM_SETTLE_MODE_SPRING}
+     * @throws IllegalArgumentException if an unknown 'mode' is passed in
+     */
+    public void setItemSettleMode(@ItemSettleMode int mode) {
+        if (mode != ITEM_SETTLE_MODE_DURATION && mode != ITEM_SETTLE_MODE_SPRING) {
+            throw new IllegalArgumentException("Unknown item settle mode: " + mode);
+        }
+        mItemSettleMode = mode;
+    }
+
+    /**
+     * @return the strategy for rendering the item views into hardware layers while they are
+     *         being animated to open or close
+     */
+    @ItemLayerStrategy
+    public int getItemLayerStrategy() {
+        return mItemLayerStrategy;
+    }
+
+    /**
+     * Sets the strategy for rendering the item views into hardware layers while they are
+     * being animated to open or close. Layers make each frame cheaper to draw at the cost of
+     * GPU memory and an upload of their contents on the first frame.
+     *
+     * @param strategy one of {@link #ITEM_LAYER_STRATEGY_NEVER}, {@link #ITEM_LAYER_STRATEGY_ALWAYS}
+     *                 or {@link #ITEM_LAYER_STRATEGY_ADAPTIVE}
+     * @throws IllegalArgumentException if an unknown 'strategy' is passed in
+     */
+    public void setItemLayerStrategy(@ItemLayerStrategy int strategy) {
+        if (strategy != ITEM_LAYER_STRATEGY_NEVER
+                && strategy != ITEM_LAYER_STRATEGY_ALWAYS
+                && strategy != ITEM_LAYER_STRATEGY_ADAPTIVE) {
+            throw new IllegalArgumentException("Unknown item layer strategy: " + strategy);
+        }
+        mItemLayerStrategy = strategy;
+    }
+
+    /**
+     * @return the way the item views are moved while being dragged or animated
+     */
+    @ItemTranslationMode
+    public int getItemTranslationMode() {
+        return mItemTranslationMode;
+    }
+
+    /**
+     * Sets the way the item views are moved while being dragged or animated. Any item view
+     * being animated is brought to its final position, and the ones left open are moved again
+     * in the new mode.
+     * <p>
+     * In {@link #ITEM_TRANSLATION_MODE_SCROLL scroll mode}, item views must not be scrolled
+     * horizontally by themselves.
+     *
+     * @param mode either {@link #ITEM_TRANSLATION_MODE_CHILDREN} or
+     *             {@link #ITEM_TRANSLATION_MODE_SCROLL}
+     * @throws IllegalArgumentException if an unknown 'mode' is passed in
+     */
+    public void setItemTranslationMode(@ItemTranslationMode int mode) {
+        if (mode != ITEM_TRANSLATION_MODE_CHILDREN && mode != ITEM_TRANSLATION_MODE_SCROLL) {
+            throw new IllegalArgumentException("Unknown item translation mode: " + mode);
+        }
+        if (mode == mItemTranslationMode) return;
+
+        mItemAnimationDriver.endAll();
+        // Moves the translated item views back in the old mode and then forth in the new one.
+        final int count = mOpenedItems.size();
+        final boolean activeItemTranslated = mActiveItemState != null
+                && mActiveItemState.translationX != 0 && !mOpenedItems.contains(mActiveItemState);
+        final ItemSwipeState[] states = new ItemSwipeState[count + (activeItemTranslated ? 1 : 0)];
+        for (int i = 0; i < count; i++) {
+            states[i] = mOpenedItems.get(i);
+        }
+        if (activeItemTranslated) {
+            states[count] = mActiveItemState;
+        }
+        final float[] translations = new float[states.length];
+        for (int i = 0; i < states.length; i++) {
+            translations[i] = states[i].translationX;
+            baseTranslateItemViewXBy(states[i], -translations[i]);
+            if (states[i].parallaxPending) {
+                applyItemMenuParallax(states[i]);
+            }
+        }
+        mItemTranslationMode = mode;
+        for (int i = 0; i < states.length; i++) {
+            baseTranslateItemViewXBy(states[i], translations[i]);
+        }
+    }
+
+    /**
+     * Gets the maximum number of bytes of memory, estimated as 4 bytes per pixel, that
+     * the hardware layers of all the animated item views can take up at the same time.
+     * The default budget is that of two full-screen layers.
+     *
+     * @return the memory budget for the hardware layers of the item views
+     */
+    public long getItemLayerMemoryBudget() {
+        return mItemLayerMemoryBudget;
+    }
+
+    /**
+     * Sets the maximum number of bytes of memory that the hardware layers of all the animated
+     * item views can take up at the same time. An item view whose layers would exceed this
+     * is animated without layers.
+     *
+     * @throws IllegalArgumentException if a negative 'bytes' is passed in
+     */
+    public void setItemLayerMemoryBudget(long bytes) {
+        if (bytes < 0) {
+            throw new IllegalArgumentException(
+                    "The memory budget for item layers cannot be negative: " + bytes);
+        }
+        mItemLayerMemoryBudget = bytes;
+    }
+
+    /**
+     * Sets a listener to be notified of the performance metrics of each swipe of the item views,
+     * i.e., the responsiveness of the drag and the smoothness of the animation following it.
+     * Nothing is allocated for collecting the metrics, with or without a listener set.
+     *
+     * @param listener the listener to set, or null to remove the current one
+     */
+    public void setOnItemSwipeMetricsListener(@Nullable OnItemSwipeMetricsListener listener) {
+        mOnItemSwipeMetricsListener = listener;
+    }
+
+    /**
+     * @return the recorder of the touch events dispatched to this view, or null if not set
+     */
+    @Nullable
+    public TouchEventRecorder getTouchEventRecorder() {
+        return mTouchEventRecorder;
+    }
+
+    /**
+     * Sets a recorder to record all the touch events dispatched to this view, in the coordinates
+     * of this view, so that they can be replayed into it with a {@link TouchEventReplayer} later.
+     * The events are written to the stream of the recorder on a background thread, so the stream
+     * may block without blocking the touch handling. The recorder is not closed by this view,
+     * and is removed once it fails to write an event.
+     *
+     * @param recorder the recorder to set, or null to stop recording
+     */
+    public void setTouchEventRecorder(@Nullable TouchEventRecorder recorder) {
+        mTouchEventRecorder = recorder;
+    }
+
+    /**
+     * @return the binder of the menus inflated from the placeholders of the item views
+     */
+    @Nullable
+    public ItemMenuBinder getItemMenuBinder() {
+        return mItemMenuBinder;
+    }
+
+    /**
+     * Sets the binder of the menus inflated from the layout resources of the {@link ViewStub}
+     * placeholders of the item views, which is called each time such a menu is attached to
+     * an item view, including when it is reused from a recycled one. It is not used for the
+     * menus created by the {@link #setItemMenuFactory(ItemMenuFactory) factory}, which binds
+     * them itself.
+     *
+     * @param binder the binder to set, or null to leave the menus as inflated or reused
+     */
+    public void setItemMenuBinder(@Nullable ItemMenuBinder binder) {
+        mItemMenuBinder = binder;
+    }
+
+    /**
+     * @return the factory creating the menus of the item views with menu placeholders
+     */
+    @Nullable
+    public ItemMenuFactory getItemMenuFactory() {
+        return mItemMenuFactory;
+    }
+
+    /**
+     * Sets the factory creating the menus of the item views whose last child is a {@link ViewStub}
+     * placeholder instead of a menu. Such a menu is only attached when its item view is first
+     * dragged beyond the touch slop or {@link #openItemAtPosition(int, boolean) opened},
+     * and is detached and kept per view type for reuse once its item view is recycled closed.
+     * <p>
+     * Without a factory, the menus are inflated from the layout resources of the placeholders.
+     *
+     * @param factory the factory to set, or null to inflate the placeholders
+     */
+    public void setItemMenuFactory(@Nullable ItemMenuFactory factory) {
+        if (mItemMenuFactory != factory) {
+            mItemMenuFactory = factory;
+            mItemMenuPool.clear();
+        }
+    }
+
     public SlidingItemMenuRecyclerView(Context context) {
         this(context, null);
     }
@@ -180,7 +696,9 @@ public class SlidingItemMenuRecyclerView extends RecyclerView {
     public SlidingItemMenuRecyclerView(Context context, @Nullable AttributeSet attrs, int defStyle) {
         super(context, attrs, defStyle);
         mTouchSlop = ViewConfiguration.get(context).getScaledTouchSlop();
-        mItemMinimumFlingVelocity = 200f * getResources().getDisplayMetrics().density;
+        final DisplayMetrics dm = getResources().getDisplayMetrics();
+        // Minimum gesture speed along the x axis to automatically scroll item views: 200 dp/s
+        mGestureEngine = new SwipeGestureEngine(mTouchSlop, 200f * dm.density);
 
         final TypedArray ta = context.obtainStyledAttributes(
                 attrs, R.styleable.SlidingItemMenuRecyclerView, defStyle, 0);
@@ -192,9 +710,54 @@ public class SlidingItemMenuRecyclerView extends RecyclerView {
             setItemDraggable(ta.getBoolean(R.styleable
                     .SlidingItemMenuRecyclerView_itemScrollingEnabled /* deprecated */, true));
         }
+        setItemDragPredictionEnabled(ta.getBoolean(R.styleable
+                .SlidingItemMenuRecyclerView_itemDragPredictionEnabled, false));
         setItemScrollDuration(ta.getInteger(R.styleable
                 .SlidingItemMenuRecyclerView_itemScrollDuration, DEFAULT_ITEM_SCROLL_DURATION));
+        setItemSettleMode(ta.getInt(R.styleable
+                .SlidingItemMenuRecyclerView_itemSettleMode, ITEM_SETTLE_MODE_DURATION));
+        setItemLayerStrategy(ta.getInt(R.styleable
+                .SlidingItemMenuRecyclerView_itemLayerStrategy, ITEM_LAYER_STRATEGY_ADAPTIVE));
+        setItemTranslationMode(ta.getInt(R.styleable
+                .SlidingItemMenuRecyclerView_itemTranslationMode, ITEM_TRANSLATION_MODE_CHILDREN));
         ta.recycle();
+        setItemLayerMemoryBudget(2L * 4L * dm.widthPixels * dm.heightPixels);
+        addRecyclerListener(new RecyclerListener() {
+            @Override
+            public void onViewRecycled(@NonNull ViewHolder holder) {
+                if (holder.itemView instanceof ViewGroup) {
+                    resetRecycledItemView(holder);
+                    recycleLazyItemMenu((ViewGroup) holder.itemView);
+                }
+            }
+        });
+    }
+
+    @Override
+    public void setAdapter(@Nullable Adapter adapter) {
+        super.setAdapter(adapter);
+        observeAdapter(adapter);
+    }
+
+    @Override
+    public void swapAdapter(@Nullable Adapter adapter, boolean removeAndRecycleExistingViews) {
+        super.swapAdapter(adapter, removeAndRecycleExistingViews);
+        observeAdapter(adapter);
+    }
+
+    private void observeAdapter(Adapter<?> adapter) {
+        if (mObservedAdapter != null) {
+            mObservedAdapter.unregisterAdapterDataObserver(mOpenItemIndexUpdater);
+        }
+        // The positions of the previous adapter mean nothing to the new one, while the ones
+        // restored before the first adapter is set are for it.
+        if (mObservedAdapter != null) {
+            mOpenItemIndex.clear();
+        }
+        mObservedAdapter = adapter;
+        if (adapter != null) {
+            adapter.registerAdapterDataObserver(mOpenItemIndexUpdater);
+        }
     }
 
     @Override
@@ -203,49 +766,168 @@ public class SlidingItemMenuRecyclerView extends RecyclerView {
         super.setVerticalScrollBarEnabled(verticalScrollBarEnabled);
     }
 
-    private boolean childHasMenu(ViewGroup itemView) {
-        if (itemView.getVisibility() != VISIBLE) return false;
+    @VisibleForTesting
+    boolean childHasMenu(ViewGroup itemView) {
+        final FrameLayout itemMenu = getItemMenu(itemView);
+        if (itemMenu == null) return false;
+
+        // Menu widths are only re-measured if the menu has been laid out since they were cached.
+        return obtainItemSwipeState(itemView).resolve(itemMenu) > 0;
+    }
+
+    /**
+     * @return the menu of the given item view, which is visible except that we may have hidden
+     *         it while it is fully closed, or null if the item view does not have one
+     */
+    /*synthetic*/ static FrameLayout getItemMenu(ViewGroup itemView) {
+        if (itemView.getVisibility() != VISIBLE) return null;
 
         final int itemChildCount = itemView.getChildCount();
         final View itemLastChild = itemView.getChildAt(itemChildCount >= 2 ? itemChildCount - 1 : 1);
-        if (!(itemLastChild instanceof FrameLayout)
-                || itemLastChild.getVisibility() != View.VISIBLE)
-            return false;
+        if (!(itemLastChild instanceof FrameLayout)) return null;
+
+        if (itemLastChild.getVisibility() != View.VISIBLE) {
+            final ItemSwipeState state = getItemSwipeState(itemView);
+            if (state == null || !state.isMenuHiddenByUs(itemLastChild)) return null;
+        }
+        return (FrameLayout) itemLastChild;
+    }
+
+    /*synthetic*/ static ItemSwipeState obtainItemSwipeState(ViewGroup itemView) {
+        ItemSwipeState state = getItemSwipeState(itemView);
+        if (state == null) {
+            state = new ItemSwipeState(itemView);
+            itemView.setTag(TAG_ITEM_SWIPE_STATE, state);
+        }
+        return state;
+    }
+
+    /**
+     * @return true if the menu of the given item view is to be attached lazily in place of
+     *         the {@link ViewStub} placeholder as its last child
+     */
+    private static boolean childHasMenuPlaceholder(ViewGroup itemView) {
+        if (itemView.getVisibility() != VISIBLE) return false;
+
+        final int itemChildCount = itemView.getChildCount();
+        return itemChildCount >= 2 && itemView.getChildAt(itemChildCount - 1) instanceof ViewStub;
+    }
+
+    /**
+     * Attaches the menu of the given item view if it is declared as a placeholder, so that
+     * it is ready to be dragged or opened.
+     *
+     * @return true if the item view has a menu
+     */
+    private boolean ensureItemMenu(ViewGroup itemView) {
+        if (childHasMenu(itemView)) return true;
+        if (!childHasMenuPlaceholder(itemView)) return false;
+
+        attachLazyItemMenu(itemView);
+        return childHasMenu(itemView);
+    }
+
+    private void attachLazyItemMenu(ViewGroup itemView) {
+        final int index = itemView.getChildCount() - 1;
+        final ViewStub stub = (ViewStub) itemView.getChildAt(index);
+        final ViewHolder holder = getChildViewHolder(itemView);
+        final int viewType = holder.getItemViewType();
 
-        final FrameLayout itemMenu = (FrameLayout) itemLastChild;
-        final int menuItemCount = itemMenu.getChildCount();
-        final int[] menuItemWidths = new int[menuItemCount];
-        int itemMenuWidth = 0;
-        for (int i = 0; i < menuItemCount; i++) {
-            final FrameLayout menuItemBg = (FrameLayout) itemMenu.getChildAt(i);
-            // We can not just add up the item menu width with the width of the menu item without
-            // checking the visibilities of it and its parents, as the visibility of a view
-            // changing from visible to gone will just exclude it from the subsequent layout passes
-            // and therefore will usually not have its width and height properties updated.
-            if (menuItemBg.getVisibility() == View.VISIBLE) {
-                final View menuItem = menuItemBg.getChildAt(0);
-                if (menuItem.getVisibility() == View.VISIBLE) {
-                    menuItemWidths[i] = menuItem.getWidth();
-                    itemMenuWidth += menuItemWidths[i];
+        FrameLayout itemMenu = mItemMenuPool.acquire(viewType);
+        if (itemMenu == null) {
+            if (mItemMenuFactory != null) {
+                itemMenu = mItemMenuFactory.onCreateItemMenu(this, viewType);
+            } else {
+                if (stub.getLayoutResource() == 0) {
+                    throw new IllegalStateException("The menu placeholder of an item view must " +
+                            "have a valid layout resource if no ItemMenuFactory is set");
                 }
+                itemMenu = (FrameLayout) LayoutInflater.from(getContext())
+                        .inflate(stub.getLayoutResource(), itemView, false);
             }
         }
-        if (itemMenuWidth > 0) {
-            itemView.setTag(TAG_ITEM_MENU_WIDTH, itemMenuWidth);
-            itemView.setTag(TAG_MENU_ITEM_WIDTHS, menuItemWidths);
-            return true;
+        if (stub.getInflatedId() != NO_ID) {
+            itemMenu.setId(stub.getInflatedId());
         }
-        return false;
+        itemView.removeViewInLayout(stub);
+        itemView.addViewInLayout(itemMenu, index, stub.getLayoutParams(), true);
+        final ItemMenuBinder binder = mItemMenuFactory != null ? mItemMenuFactory : mItemMenuBinder;
+        if (binder != null) {
+            binder.onBindItemMenu(itemMenu, holder);
+        }
+
+        final ItemSwipeState state = obtainItemSwipeState(itemView);
+        state.menuStub = stub;
+        state.menuViewType = viewType;
+
+        // Lays out the item view at its current size right away, instead of waiting for
+        // the next layout pass, so that the menu can be measured and dragged on this frame.
+        itemView.measure(
+                MeasureSpec.makeMeasureSpec(itemView.getWidth(), MeasureSpec.EXACTLY),
+                MeasureSpec.makeMeasureSpec(itemView.getHeight(), MeasureSpec.EXACTLY));
+        itemView.layout(itemView.getLeft(), itemView.getTop(),
+                itemView.getRight(), itemView.getBottom());
+    }
+
+    /*synthetic*/ void recycleLazyItemMenu(ViewGroup itemView) {
+        final ItemSwipeState state = getItemSwipeState(itemView);
+        // Keeps the menu of an item view that is still translated.
+        if (state == null || state.menuStub == null
+                || state.animating || state.openedIndex >= 0 || state.translationX != 0) {
+            return;
+        }
+
+        final int index = itemView.getChildCount() - 1;
+        final FrameLayout itemMenu = (FrameLayout) itemView.getChildAt(index);
+        final ViewStub stub = state.menuStub;
+        state.menuStub = null;
+        state.detachMenu();
+        itemView.removeViewInLayout(itemMenu);
+        itemView.addViewInLayout(stub, index, itemMenu.getLayoutParams(), true);
+
+        itemMenu.setTranslationX(0);
+        for (int i = itemMenu.getChildCount() - 1; i >= 0; i--) {
+            itemMenu.getChildAt(i).setTranslationX(0);
+        }
+        mItemMenuPool.release(state.menuViewType, itemMenu);
+    }
+
+    /**
+     * Gets the swipe state attached to the given item view, which is available after
+     * {@link #childHasMenu(ViewGroup)} has been called for that item view.
+     */
+    @VisibleForTesting
+    static ItemSwipeState getItemSwipeState(ViewGroup itemView) {
+        return (ItemSwipeState) itemView.getTag(TAG_ITEM_SWIPE_STATE);
+    }
+
+    /** Gets the driver of the item animations, whose frames can then be stepped manually. */
+    @VisibleForTesting
+    ItemAnimationDriver getItemAnimationDriver() {
+        return mItemAnimationDriver;
     }
 
     private void resolveActiveItemMenuBounds() {
-        final int itemMenuWidth = (int) mActiveItem.getTag(TAG_ITEM_MENU_WIDTH);
-        final int left = Utils.isLayoutRtl(mActiveItem) ? 0 : mActiveItem.getRight() - itemMenuWidth;
+        final int itemMenuWidth = mActiveItemState.itemMenuWidth;
+        final int left = mActiveItemState.rtl ? 0 : mActiveItem.getRight() - itemMenuWidth;
         final int right = left + itemMenuWidth;
         mActiveItemMenuBounds.set(left, mActiveItemBounds.top,
                 right, mActiveItemBounds.bottom);
     }
 
+    @Override
+    public boolean dispatchTouchEvent(MotionEvent e) {
+        if (mTouchEventRecorder != null) {
+            try {
+                mTouchEventRecorder.record(e);
+            } catch (IOException ex) {
+                Log.w(TAG, "Failed to record a touch event, stop recording", ex);
+                mTouchEventRecorder = null;
+            }
+        }
+        return super.dispatchTouchEvent(e);
+    }
+
     @Override
     public boolean onInterceptTouchEvent(MotionEvent e) {
         final int action = e.getAction();
@@ -262,61 +944,64 @@ public class SlidingItemMenuRecyclerView extends RecyclerView {
         boolean intercept = false;
         switch (action) {
             case MotionEvent.ACTION_DOWN:
-                mDownX = Utils.roundFloat(e.getX());
-                mDownY = Utils.roundFloat(e.getY());
-                markCurrTouchPoint(mDownX, mDownY);
-
-                for (int i = getChildCount() - 1; i >= 0; i--) {
-                    final View child = getChildAt(i);
-                    if (!(child instanceof ViewGroup)) continue;
-
-                    final ViewGroup itemView = (ViewGroup) child;
-                    itemView.getHitRect(mActiveItemBounds);
-                    if (!mActiveItemBounds.contains(mDownX, mDownY)) continue;
+                mGestureEngine.onDown(e.getEventTime(), e.getX(), e.getY());
+                final int downX = mGestureEngine.getDownX();
+                final int downY = mGestureEngine.getDownY();
 
+                final ViewGroup itemView =
+                        ItemViewFinder.findItemViewUnder(this, downX, downY, mActiveItemBounds);
+                if (itemView != null) {
                     if (childHasMenu(itemView)) {
                         mActiveItem = itemView;
+                        mActiveItemState = getItemSwipeState(itemView);
+                    } else if (childHasMenuPlaceholder(itemView)) {
+                        // The menu is not attached until the item view starts being dragged.
+                        mActiveItem = itemView;
+                        mActiveItemState = obtainItemSwipeState(itemView);
+                        mActiveItemState.rtl = Utils.isLayoutRtl(itemView);
                     }
-                    break;
                 }
 
                 if (mOpenedItems.size() == 0) break;
                 // Disallow our parent Views to intercept the touch events so long as there is
                 // at least one item view in the open or being closed state.
                 requestParentDisallowInterceptTouchEvent();
-                if (mFullyOpenedItem != null) {
-                    mHasItemFullyOpenOnActionDown = true;
-                    if (mActiveItem == mFullyOpenedItem) {
-                        resolveActiveItemMenuBounds();
-                        // If the user's finger downs on the completely opened itemView's menu area,
-                        // do not intercept the subsequent touch events (ACTION_MOVE, ACTION_UP, etc.)
-                        // as we receive the ACTION_DOWN event.
-                        if (mActiveItemMenuBounds.contains(mDownX, mDownY)) {
-                            break;
-                            // If the user's finger downs on the fully opened itemView but not on
-                            // its menu, then we need to intercept them.
-                        } else if (mActiveItemBounds.contains(mDownX, mDownY)) {
-                            return true;
-                        }
-                    }
+                final boolean onFullyOpenedItem =
+                        mActiveItem != null && mActiveItem == mFullyOpenedItem;
+                if (onFullyOpenedItem) {
+                    resolveActiveItemMenuBounds();
+                }
+                switch (mGestureEngine.onDownWithItemsOpen(mFullyOpenedItem != null,
+                        onFullyOpenedItem,
+                        onFullyOpenedItem && mActiveItemMenuBounds.contains(downX, downY))) {
+                    // If the user's finger downs on the completely opened itemView's menu area,
+                    // do not intercept the subsequent touch events (ACTION_MOVE, ACTION_UP, etc.)
+                    // as we receive the ACTION_DOWN event.
+                    case SwipeGestureEngine.DOWN_DELIVER_TO_MENU:
+                        return super.onInterceptTouchEvent(e);
                     // If 1) the fully opened itemView is not the current one or 2) the user's
                     // finger downs outside of the area in which this view displays the itemViews,
                     // make the itemView's menu hidden and intercept the subsequent touch events.
-                    releaseItemViewInternal(mFullyOpenedItem, mItemScrollDuration);
+                    // Any other item view left open by a batch open is hidden along with it.
+                    case SwipeGestureEngine.DOWN_RELEASE_AND_INTERCEPT:
+                        releaseAllItemViewsInternal(null, NO_POSITION, mItemScrollDuration);
+                        return true;
+                    // Intercept the next touch events as long as there exists some item view open
+                    // (full open is not necessary for it). This prevents the onClick() method of
+                    // the pressed child from being called in the pending ACTION_UP event.
+                    default:
+                        return true;
                 }
-                // Intercept the next touch events as long as there exists some item view open
-                // (full open is not necessary for it). This prevents the onClick() method of
-                // the pressed child from being called in the pending ACTION_UP event.
-                return true;
 
             case MotionEvent.ACTION_MOVE:
-                markCurrTouchPoint(e.getX(), e.getY());
+                mGestureEngine.onMove(e.getX(), e.getY());
+                addTouchSamples(e);
 
                 intercept = tryHandleItemScrollingEvent();
                 // If the user initially put his/her finger down on the fully opened itemView's menu,
                 // disallow our parent class to intercept the touch events since we will do that
                 // as the user tends to scroll the current touched itemView horizontally.
-                if (mHasItemFullyOpenOnActionDown && mActiveItemMenuBounds.contains(mDownX, mDownY)) {
+                if (mGestureEngine.isDownOnFullyOpenItemMenu()) {
                     return intercept;
                 }
                 break;
@@ -326,8 +1011,8 @@ public class SlidingItemMenuRecyclerView extends RecyclerView {
                 // If the user initially placed his/her finger on the fully opened itemView's menu
                 // and has clicked it or has not scrolled that itemView, hide it as his/her last
                 // finger touching the screen lifts.
-                if (mHasItemFullyOpenOnActionDown && mActiveItemMenuBounds.contains(mDownX, mDownY)) {
-                    releaseItemView(true);
+                if (mGestureEngine.isDownOnFullyOpenItemMenu()) {
+                    releaseAllItemViewsInternal(null, NO_POSITION, mItemScrollDuration);
                 }
                 clearTouch();
                 break;
@@ -340,7 +1025,7 @@ public class SlidingItemMenuRecyclerView extends RecyclerView {
     public boolean onTouchEvent(MotionEvent e) {
         if (mIsVerticalScrollBarEnabled) {
             // Makes the vertical scroll bar disappear while an itemView is being dragged.
-            super.setVerticalScrollBarEnabled(!mIsItemBeingDragged);
+            super.setVerticalScrollBarEnabled(!mGestureEngine.isDragging());
         }
 
         if (mVelocityTracker == null)
@@ -350,36 +1035,31 @@ public class SlidingItemMenuRecyclerView extends RecyclerView {
         switch (e.getAction() & MotionEvent.ACTION_MASK) {
             case MotionEvent.ACTION_POINTER_DOWN:
             case MotionEvent.ACTION_POINTER_UP:
-                if (mIsItemBeingDragged || mHasItemFullyOpenOnActionDown || mOpenedItems.size() > 0) {
+                if (mGestureEngine.isDragging() || mGestureEngine.hasItemFullyOpenOnDown()
+                        || mOpenedItems.size() > 0) {
                     return true;
                 }
                 break;
 
             case MotionEvent.ACTION_MOVE:
-                markCurrTouchPoint(e.getX(), e.getY());
+                mGestureEngine.onMove(e.getX(), e.getY());
+                addTouchSamples(e);
 
                 if (!mIsItemDraggable && cancelTouch()) {
                     return true;
                 }
-                if (mIsItemBeingDragged) {
-                    // Positive when the user's finger slides towards the right.
-                    float dx = mTouchX[mTouchX.length - 1] - mTouchX[mTouchX.length - 2];
-                    // Positive when the itemView scrolls towards the right.
-                    final float translationX = mActiveItem.getChildAt(0).getTranslationX();
-                    final boolean rtl = Utils.isLayoutRtl(mActiveItem);
-                    final int finalXFromEndToStart =
-                            rtl ? (int) mActiveItem.getTag(TAG_ITEM_MENU_WIDTH)
-                                : -(int) (mActiveItem.getTag(TAG_ITEM_MENU_WIDTH));
-                    // Swipe the itemView towards the horizontal start over the width of
-                    // the itemView's menu.
-                    if (!rtl && dx + translationX < finalXFromEndToStart
-                            || rtl && dx + translationX > finalXFromEndToStart) {
-                        dx = dx / 3f;
-                        // Swipe the itemView towards the end of horizontal to (0,0).
-                    } else if (!rtl && dx + translationX > 0 || rtl && dx + translationX < 0) {
-                        dx = 0 - translationX;
+                if (mGestureEngine.isDragging()) {
+                    final ItemSwipeState state = mActiveItemState;
+                    // Positive when the itemView scrolls towards the right, slowed down when
+                    // swiped towards the horizontal start over the width of its menu.
+                    final float dx = mGestureEngine.computeDragDelta(
+                            state.translationX, state.itemMenuWidth, state.rtl,
+                            mIsItemDragPredictionEnabled ? getDragPredictionMillis() : 0);
+                    translateItemViewXBy(state, dx);
+                    if (mDragFrameCount++ == 0) {
+                        mDownToFirstTranslationMillis =
+                                SystemClock.uptimeMillis() - e.getDownTime();
                     }
-                    translateItemViewXBy(mActiveItem, dx);
 
                     // Consume this touch event and do not invoke the method onTouchEvent(e) of
                     // the parent class to temporarily make this view unable to scroll up or down.
@@ -388,7 +1068,7 @@ public class SlidingItemMenuRecyclerView extends RecyclerView {
                     // If there existed itemView whose menu was fully open when the user initially
                     // put his/her finger down, always consume the touch event and only when the item
                     // has a tend of scrolling horizontally will we handle the next events.
-                    if (mHasItemFullyOpenOnActionDown | tryHandleItemScrollingEvent()) {
+                    if (mGestureEngine.hasItemFullyOpenOnDown() | tryHandleItemScrollingEvent()) {
                         return true;
                     }
                     // Disallow current view to scroll while an/some item view(s) is/are scrolling.
@@ -399,61 +1079,37 @@ public class SlidingItemMenuRecyclerView extends RecyclerView {
                 break;
 
             case MotionEvent.ACTION_UP:
-                if (mIsItemDraggable && mIsItemBeingDragged) {
-                    final boolean rtl = Utils.isLayoutRtl(mActiveItem);
-                    final float translationX = mActiveItem.getChildAt(0).getTranslationX();
-                    final int itemMenuWidth = (int) mActiveItem.getTag(TAG_ITEM_MENU_WIDTH);
-                    //noinspection StatementWithEmptyBody
-                    if (translationX == 0) { // itemView's menu is closed
-
-                        // itemView's menu is totally opened
-                    } else if (!rtl && translationX == -itemMenuWidth
-                            || rtl && translationX == itemMenuWidth) {
-                        mFullyOpenedItem = mActiveItem;
-
+                if (mIsItemDraggable && mGestureEngine.isDragging()) {
+                    addTouchSamples(e);
+                    final ItemSwipeState state = mActiveItemState;
+                    final boolean rtl = state.rtl;
+                    final int itemMenuWidth = state.itemMenuWidth;
+                    // Signed, to be carried on by the spring in spring settle mode
+                    final float xVelocity;
+                    if (mGestureEngine.hasVelocity()) {
+                        // Smoothed over all the recent samples, including the historical ones
+                        xVelocity = mGestureEngine.getVelocity();
                     } else {
-                        final float dx =
-                                rtl ? mTouchX[mTouchX.length - 2] - mTouchX[mTouchX.length - 1]
-                                    : mTouchX[mTouchX.length - 1] - mTouchX[mTouchX.length - 2];
                         mVelocityTracker.computeCurrentVelocity(1000);
-                        final float velocityX = Math.abs(mVelocityTracker.getXVelocity());
-                        // If the speed at which the user's finger lifted is greater than 200 dp/s
-                        // while user was scrolling itemView towards the horizontal start,
-                        // make it automatically scroll to open and show its menu.
-                        if (dx < 0 && velocityX >= mItemMinimumFlingVelocity) {
-                            smoothTranslateItemViewXTo(
-                                    mActiveItem,
-                                    rtl ? itemMenuWidth : -itemMenuWidth,
-                                    mItemScrollDuration);
+                        xVelocity = mVelocityTracker.getXVelocity();
+                    }
+                    // The item view is flung if the user's finger lifted faster than 200 dp/s,
+                    // otherwise it goes to open if it was dragged over half of its menu width.
+                    switch (mGestureEngine.decideRelease(
+                            state.translationX, itemMenuWidth, rtl, xVelocity)) {
+                        case SwipeGestureEngine.RELEASE_OPENED:
                             mFullyOpenedItem = mActiveItem;
-                            clearTouch();
-                            cancelParentTouch(e);
-                            return true;
-
-                            // If the speed at which the user's finger lifted is greater than 200 dp/s
-                            // while user was scrolling itemView towards the end of horizontal,
-                            // make its menu hidden.
-                        } else if (dx > 0 && velocityX >= mItemMinimumFlingVelocity) {
-                            releaseItemView(true);
-                            clearTouch();
-                            cancelParentTouch(e);
-                            return true;
-                        }
-
-                        final float middle = itemMenuWidth / 2f;
-                        // If the sliding distance is less than half of its slidable distance,
-                        // hide its menu,
-                        if (Math.abs(translationX) < middle) {
-                            releaseItemView(true);
-
-                            // else open its menu.
-                        } else {
+                            break;
+                        case SwipeGestureEngine.RELEASE_OPEN:
                             smoothTranslateItemViewXTo(
-                                    mActiveItem,
+                                    state,
                                     rtl ? itemMenuWidth : -itemMenuWidth,
-                                    mItemScrollDuration);
+                                    mItemScrollDuration, xVelocity);
                             mFullyOpenedItem = mActiveItem;
-                        }
+                            break;
+                        case SwipeGestureEngine.RELEASE_CLOSE:
+                            releaseItemViewInternal(mActiveItem, mItemScrollDuration, xVelocity);
+                            break;
                     }
                     clearTouch();
                     cancelParentTouch(e);
@@ -467,11 +1123,17 @@ public class SlidingItemMenuRecyclerView extends RecyclerView {
         return super.onTouchEvent(e);
     }
 
-    private void markCurrTouchPoint(float x, float y) {
-        System.arraycopy(mTouchX, 1, mTouchX, 0, mTouchX.length - 1);
-        mTouchX[mTouchX.length - 1] = x;
-        System.arraycopy(mTouchY, 1, mTouchY, 0, mTouchY.length - 1);
-        mTouchY[mTouchY.length - 1] = y;
+    /** Feeds the estimator with all the samples of the given event, oldest first. */
+    private void addTouchSamples(MotionEvent e) {
+        for (int i = 0, historySize = e.getHistorySize(); i < historySize; i++) {
+            mGestureEngine.addSample(e.getHistoricalEventTime(i), e.getHistoricalX(i));
+        }
+        mGestureEngine.addSample(e.getEventTime(), e.getX());
+    }
+
+    private long getDragPredictionMillis() {
+        return Math.min(MAX_DRAG_PREDICTION_MILLIS,
+                mItemAnimationDriver.getFrameIntervalNanos() / 1_000_000L);
     }
 
     private boolean tryHandleItemScrollingEvent() {
@@ -486,19 +1148,13 @@ public class SlidingItemMenuRecyclerView extends RecyclerView {
             return false;
         }
 
-        final float absDy = Math.abs(mTouchY[mTouchY.length - 1] - mDownY);
-        if (absDy <= mTouchSlop) {
-            final float dx = mTouchX[mTouchX.length - 1] - mDownX;
-            if (mOpenedItems.size() == 0) {
-                final boolean rtl = Utils.isLayoutRtl(mActiveItem);
-                mIsItemBeingDragged = rtl && dx > mTouchSlop || !rtl && dx < -mTouchSlop;
-            } else {
-                mIsItemBeingDragged = Math.abs(dx) > mTouchSlop;
-            }
-            if (mIsItemBeingDragged) {
-                requestParentDisallowInterceptTouchEvent();
-                return true;
+        if (mGestureEngine.tryStartDrag(mActiveItemState.rtl, mOpenedItems.size() > 0)) {
+            if (!ensureItemMenu(mActiveItem)) {
+                mGestureEngine.cancelDrag();
+                return false;
             }
+            requestParentDisallowInterceptTouchEvent();
+            return true;
         }
         return false;
     }
@@ -515,7 +1171,7 @@ public class SlidingItemMenuRecyclerView extends RecyclerView {
     }
 
     private boolean cancelTouch(boolean animate) {
-        if (mIsItemBeingDragged) {
+        if (mGestureEngine.isDragging()) {
             releaseItemView(animate);
             clearTouch();
             return true;
@@ -525,9 +1181,9 @@ public class SlidingItemMenuRecyclerView extends RecyclerView {
         //    hide it on the movements canceled.
         // 2. If the previously opened itemView differs from the one currently touched,
         //    and the current one has not been scrolled at all, set 'mActiveItem' to null.
-        if (mHasItemFullyOpenOnActionDown) {
+        if (mGestureEngine.hasItemFullyOpenOnDown()) {
             if (mActiveItem == mFullyOpenedItem) {
-                releaseItemView(animate);
+                releaseAllItemViewsInternal(null, NO_POSITION, animate ? mItemScrollDuration : 0);
             }
             clearTouch();
             return true;
@@ -536,6 +1192,18 @@ public class SlidingItemMenuRecyclerView extends RecyclerView {
     }
 
     private void clearTouch() {
+        if (mGestureEngine.isDragging() && mOnItemSwipeMetricsListener != null) {
+            final ItemSwipeState state = mActiveItemState;
+            if (state.animating) {
+                // Reports the metrics when the animation settling the item view ends.
+                state.metricsPending = true;
+                state.metricsDownToFirstTranslation = mDownToFirstTranslationMillis;
+                state.metricsDragFrameCount = mDragFrameCount;
+            } else {
+                dispatchItemSwipeMetrics(state, mDownToFirstTranslationMillis, mDragFrameCount,
+                        false);
+            }
+        }
         if (mVelocityTracker != null) {
             mVelocityTracker.recycle();
             mVelocityTracker = null;
@@ -545,15 +1213,32 @@ public class SlidingItemMenuRecyclerView extends RecyclerView {
 
     private void resetTouch() {
         mActiveItem = null;
-        mHasItemFullyOpenOnActionDown = false;
+        mActiveItemState = null;
         mActiveItemBounds.setEmpty();
         mActiveItemMenuBounds.setEmpty();
-        mIsItemBeingDragged = false;
+        mGestureEngine.reset();
+        mDownToFirstTranslationMillis = -1;
+        mDragFrameCount = 0;
         if (mVelocityTracker != null) {
             mVelocityTracker.clear();
         }
     }
 
+    private void dispatchItemSwipeMetrics(ItemSwipeState state,
+                                          long downToFirstTranslation, int dragFrameCount,
+                                          boolean animated) {
+        final ItemSwipeMetrics metrics = mItemSwipeMetrics;
+        metrics.mItemView = state.itemView;
+        metrics.mDownToFirstTranslationMillis = downToFirstTranslation;
+        metrics.mDragFrameCount = dragFrameCount;
+        metrics.mAnimationDurationMillis = animated ? state.animTotalDuration : 0;
+        metrics.mAnimationFrameCount = animated ? state.animFrameCount : 0;
+        metrics.mDroppedFrameCount = animated ? state.animDroppedFrameCount : 0;
+        metrics.mHardwareLayersUsed = animated && state.animUsedLayers;
+        mOnItemSwipeMetricsListener.onItemSwipeMetrics(this, metrics);
+        metrics.mItemView = null;
+    }
+
     private void cancelParentTouch(MotionEvent e) {
         final int action = e.getAction();
         e.setAction(MotionEvent.ACTION_CANCEL);
@@ -576,16 +1261,21 @@ public class SlidingItemMenuRecyclerView extends RecyclerView {
      * @param animate whether this scroll should be smooth
      */
     public void releaseItemView(boolean animate) {
-        releaseItemViewInternal(mIsItemBeingDragged ? mActiveItem : mFullyOpenedItem,
+        releaseItemViewInternal(mGestureEngine.isDragging() ? mActiveItem : mFullyOpenedItem,
                 animate ? mItemScrollDuration : 0);
     }
 
     private void releaseItemViewInternal(ViewGroup itemView, int duration) {
+        releaseItemViewInternal(itemView, duration, 0);
+    }
+
+    private void releaseItemViewInternal(ViewGroup itemView, int duration, float velocityX) {
         if (itemView != null) {
+            final ItemSwipeState state = getItemSwipeState(itemView);
             if (duration > 0) {
-                smoothTranslateItemViewXTo(itemView, 0, duration);
+                smoothTranslateItemViewXTo(state, 0, duration, velocityX);
             } else {
-                translateItemViewXTo(itemView, 0);
+                translateItemViewXTo(state, 0);
             }
             if (mFullyOpenedItem == itemView) {
                 mFullyOpenedItem = null;
@@ -593,6 +1283,131 @@ public class SlidingItemMenuRecyclerView extends RecyclerView {
         }
     }
 
+    /**
+     * Scrolls all the item views whose menus are open or opening back to their original
+     * positions, in a single pass of animation frames.
+     *
+     * @param animate whether the scrolls should be smooth
+     */
+    public void releaseAllItemViews(boolean animate) {
+        releaseAllItemViewsExcept(NO_POSITION, animate);
+    }
+
+    /**
+     * Scrolls all the item views whose menus are open or opening back to their original
+     * positions, except for the one at the specified adapter position.
+     *
+     * @param position the position of the item to leave as it is
+     * @param animate  whether the scrolls should be smooth
+     */
+    public void releaseAllItemViewsExcept(int position, boolean animate) {
+        final LayoutManager lm = getLayoutManager();
+        final View except = lm == null || position == NO_POSITION
+                ? null : lm.findViewByPosition(position);
+        if (mGestureEngine.isDragging() && mActiveItem != except) {
+            cancelTouch(animate);
+        }
+        releaseAllItemViewsInternal(except, position, animate ? mItemScrollDuration : 0);
+    }
+
+    private void releaseAllItemViewsInternal(View except, int exceptPosition, int duration) {
+        // Iterates backwards, as an item view closed immediately swaps the last one into its slot.
+        for (int i = mOpenedItems.size() - 1; i >= 0; i--) {
+            releaseItemViewIfNotClosing(mOpenedItems.get(i), except, duration);
+        }
+        // Item views just starting to open may not have been counted as opened yet.
+        for (int i = mItemAnimationDriver.getAnimationCount() - 1; i >= 0; i--) {
+            releaseItemViewIfNotClosing(mItemAnimationDriver.getAnimation(i), except, duration);
+        }
+        // Also forgets the items whose views are not children of ours, such as the ones
+        // not laid out or sitting detached in the view cache, which the index is not updated
+        // for as they are closed.
+        mOpenItemIndex.retain(exceptPosition);
+    }
+
+    private void releaseItemViewIfNotClosing(ItemSwipeState state, View except, int duration) {
+        final ViewGroup itemView = state.itemView;
+        if (itemView == except || itemView == mActiveItem && mGestureEngine.isDragging()) return;
+        if (state.animating ? state.animStartX + state.animDeltaX == 0 : state.translationX == 0) {
+            return;
+        }
+        releaseItemViewInternal(itemView, duration);
+    }
+
+    /**
+     * Checks whether the menu of the item at the specified adapter position is fully open,
+     * which is tracked through the inserts, removals and moves of the items of the adapter.
+     *
+     * @param position the position of the item in the data set of the adapter
+     */
+    public boolean isItemOpenAtPosition(int position) {
+        return mOpenItemIndex.contains(position);
+    }
+
+    /**
+     * @return the adapter positions of the items whose menus are fully open, in ascending order
+     * @see #isItemOpenAtPosition(int)
+     */
+    @NonNull
+    public int[] getOpenItemPositions() {
+        final int[] positions = new int[mOpenItemIndex.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = mOpenItemIndex.positionAt(i);
+        }
+        return positions;
+    }
+
+    /**
+     * Smoothly opens the menus of the item views at the specified adapter positions
+     *
+     * @see #openItemsAtPositions(int[], boolean, int)
+     */
+    public int openItemsAtPositions(@NonNull int[] positions) {
+        return openItemsAtPositions(positions, true, 0);
+    }
+
+    /**
+     * Opens the menus of the item views at the specified adapter positions, leaving the other
+     * item views as they are. All the item views are animated in a single pass of animation
+     * frames, optionally staggered so that each starts moving a little after the previous one.
+     *
+     * @param positions    the positions of the items in the data set of the adapter
+     * @param animate      whether the scrolls should be smooth
+     * @param staggerDelay the delay in milliseconds between the starts of the animations of
+     *                     two consecutive item views, ignored if not animated
+     * @return the number of item views opened, not counting the positions not laid out or
+     *         the items not having a menu
+     * @throws IllegalArgumentException if a negative 'staggerDelay' is passed in
+     */
+    public int openItemsAtPositions(@NonNull int[] positions, boolean animate, int staggerDelay) {
+        if (staggerDelay < 0) {
+            throw new IllegalArgumentException(
+                    "The delay between the item animations cannot be negative: " + staggerDelay);
+        }
+        final LayoutManager lm = getLayoutManager();
+        if (lm == null) return 0;
+
+        cancelTouch(animate);
+        final int duration = animate ? mItemScrollDuration : 0;
+        int openedCount = 0;
+        for (int position : positions) {
+            final View view = lm.findViewByPosition(position);
+            if (!(view instanceof ViewGroup)) continue;
+
+            final ViewGroup itemView = (ViewGroup) view;
+            if (!ensureItemMenu(itemView)) continue;
+
+            final ItemSwipeState state = getItemSwipeState(itemView);
+            smoothTranslateItemViewXTo(
+                    state,
+                    state.rtl ? state.itemMenuWidth : -state.itemMenuWidth,
+                    duration, 0, (long) openedCount * staggerDelay);
+            mFullyOpenedItem = itemView;
+            openedCount++;
+        }
+        return openedCount;
+    }
+
     /**
      * Smoothly opens the menu of the item view at the specified adapter position
      *
@@ -621,17 +1436,16 @@ public class SlidingItemMenuRecyclerView extends RecyclerView {
         if (!(view instanceof ViewGroup)) return false;
 
         final ViewGroup itemView = (ViewGroup) view;
-        if (mFullyOpenedItem != itemView && childHasMenu(itemView)) {
+        if (mFullyOpenedItem != itemView && ensureItemMenu(itemView)) {
             // First, cancels the item view being touched or previously fully opened (if any)
             if (!cancelTouch(animate)) {
                 releaseItemView(animate);
             }
 
+            final ItemSwipeState state = getItemSwipeState(itemView);
             smoothTranslateItemViewXTo(
-                    itemView,
-                    Utils.isLayoutRtl(itemView)
-                            ? (int) itemView.getTag(TAG_ITEM_MENU_WIDTH)
-                            : -(int) (itemView.getTag(TAG_ITEM_MENU_WIDTH)),
+                    state,
+                    state.rtl ? state.itemMenuWidth : -state.itemMenuWidth,
                     animate ? mItemScrollDuration : 0);
             mFullyOpenedItem = itemView;
             return true;
@@ -639,185 +1453,388 @@ public class SlidingItemMenuRecyclerView extends RecyclerView {
         return false;
     }
 
-    private void smoothTranslateItemViewXTo(ViewGroup itemView, float x, int duration) {
-        smoothTranslateItemViewXBy(itemView, x - itemView.getChildAt(0).getTranslationX(), duration);
+    private void smoothTranslateItemViewXTo(ItemSwipeState state, float x, int duration) {
+        smoothTranslateItemViewXTo(state, x, duration, 0, 0);
     }
 
-    private void smoothTranslateItemViewXBy(ViewGroup itemView, float dx, int duration) {
-        TranslateItemViewXAnimator animator =
-                (TranslateItemViewXAnimator) itemView.getTag(TAG_ITEM_ANIMATOR);
+    private void smoothTranslateItemViewXTo(
+            ItemSwipeState state, float x, int duration, float velocityX) {
+        smoothTranslateItemViewXTo(state, x, duration, velocityX, 0);
+    }
 
+    /**
+     * @param velocityX the current horizontal velocity of the item view in pixels per second,
+     *                  only used in {@link #ITEM_SETTLE_MODE_SPRING spring mode}
+     * @param delay     the time in milliseconds before the item view starts moving
+     */
+    private void smoothTranslateItemViewXTo(
+            ItemSwipeState state, float x, int duration, float velocityX, long delay) {
+        final float dx = x - state.translationX;
         if (dx != 0 && duration > 0) {
-            boolean canceled = false;
-            if (animator == null) {
-                animator = new TranslateItemViewXAnimator(this, itemView);
-                itemView.setTag(TAG_ITEM_ANIMATOR, animator);
-
-            } else if (animator.isRunning()) {
-                animator.removeListener(animator.listener);
-                animator.cancel();
-                canceled = true;
-            }
-            animator.setFloatValues(0, dx);
-
-            final boolean rtl = Utils.isLayoutRtl(itemView);
-            final Interpolator interpolator =
-                    !rtl && dx < 0 || rtl && dx > 0 ?
-                            sOvershootInterpolator : sViscousFluidInterpolator;
-
-            animator.setInterpolator(interpolator);
-            animator.setDuration(duration);
-            animator.start();
-            if (canceled) {
-                animator.addListener(animator.listener);
+            final boolean rtl = state.rtl;
+            final boolean opening = !rtl && dx < 0 || rtl && dx > 0;
+            if (mItemSettleMode == ITEM_SETTLE_MODE_SPRING) {
+                mItemAnimationDriver.startSpring(state, x, velocityX, ITEM_SPRING_STIFFNESS,
+                        opening ? ITEM_SPRING_OPEN_DAMPING_RATIO : ITEM_SPRING_CLOSE_DAMPING_RATIO,
+                        delay);
+            } else {
+                mItemAnimationDriver.start(state, dx, duration,
+                        opening ? sOvershootInterpolator : sViscousFluidInterpolator, delay);
             }
         } else {
-            // Checks if there is an animator running for the given item view even if dx == 0
-            if (animator != null && animator.isRunning()) {
-                animator.cancel();
-            }
-            // If duration <= 0, then scroll the 'itemView' directly to prevent a redundant call
-            // to the animator.
-            baseTranslateItemViewXBy(itemView, dx);
+            // Checks if there is an animation running for the given item view even if dx == 0
+            mItemAnimationDriver.cancel(state);
+            // If duration <= 0, then scroll the 'itemView' directly to prevent a redundant
+            // animation.
+            baseTranslateItemViewXBy(state, dx);
         }
     }
 
     private void translateItemViewXTo(
-            ViewGroup itemView, @SuppressWarnings("SameParameterValue") float x) {
-        translateItemViewXBy(itemView, x - itemView.getChildAt(0).getTranslationX());
+            ItemSwipeState state, @SuppressWarnings("SameParameterValue") float x) {
+        translateItemViewXBy(state, x - state.translationX);
     }
 
-    private void translateItemViewXBy(ViewGroup itemView, float dx) {
-        final TranslateItemViewXAnimator animator =
-                (TranslateItemViewXAnimator) itemView.getTag(TAG_ITEM_ANIMATOR);
-        if (animator != null && animator.isRunning()) {
-            // Cancels the running animator associated to the 'itemView' as we horizontally
-            // scroll it to a position immediately to avoid inconsistencies in its translation X.
-            animator.cancel();
-        }
+    private void translateItemViewXBy(ItemSwipeState state, float dx) {
+        // Cancels the running animation of the 'itemView' as we horizontally scroll it
+        // to a position immediately to avoid inconsistencies in its translation X.
+        mItemAnimationDriver.cancel(state);
 
-        baseTranslateItemViewXBy(itemView, dx);
+        baseTranslateItemViewXBy(state, dx);
     }
 
     /*
-     * This method does not cancel the translation animator of the 'itemView', for which it is used
+     * This method does not cancel the translation animation of the 'itemView', for which it is used
      * to update the item view's horizontal scrolled position.
      */
-    /*synthetic*/ void baseTranslateItemViewXBy(ViewGroup itemView, float dx) {
+    /*synthetic*/ void baseTranslateItemViewXBy(ItemSwipeState state, float dx) {
         if (dx == 0) return;
 
-        final float translationX = itemView.getChildAt(0).getTranslationX() + dx;
-        final int itemMenuWidth = (int) itemView.getTag(TAG_ITEM_MENU_WIDTH);
+        final ViewGroup itemView = state.itemView;
+        final float translationX = state.translationX + dx;
+        final int itemMenuWidth = state.itemMenuWidth;
 
-        final boolean rtl = Utils.isLayoutRtl(itemView);
+        final boolean rtl = state.rtl;
         if (!rtl && translationX > -itemMenuWidth * 0.05f
                 || rtl && translationX < itemMenuWidth * 0.05f) {
-            mOpenedItems.remove(itemView);
-
-        } else if (!mOpenedItems.contains(itemView)) {
-            mOpenedItems.add(itemView);
+            mOpenedItems.remove(state);
+        } else {
+            mOpenedItems.add(state);
         }
 
+        if (translationX != 0) {
+            state.showMenu();
+        }
+        state.translationX = translationX;
+        if (translationX == 0 || translationX == (rtl ? itemMenuWidth : -itemMenuWidth)) {
+            updateOpenItemIndex(itemView, translationX != 0);
+        }
+        if (mItemTranslationMode == ITEM_TRANSLATION_MODE_SCROLL) {
+            // Scrolling moves all the children at once, leaving the parallax to before drawing.
+            itemView.scrollTo(-Utils.roundFloat(translationX), 0);
+            state.parallaxPending = true;
+            mItemParallaxPending = true;
+            if (translationX == 0) {
+                state.hideMenu();
+            }
+            return;
+        }
         final int itemChildCount = itemView.getChildCount();
         for (int i = 0; i < itemChildCount; i++) {
             itemView.getChildAt(i).setTranslationX(translationX);
         }
 
-        final FrameLayout itemMenu = (FrameLayout) itemView.getChildAt(itemChildCount - 1);
-        final int[] menuItemWidths = (int[]) itemView.getTag(TAG_MENU_ITEM_WIDTHS);
-        float menuItemFrameDx = 0;
-        for (int i = 1, menuItemCount = itemMenu.getChildCount(); i < menuItemCount; i++) {
-            final FrameLayout menuItemFrame = (FrameLayout) itemMenu.getChildAt(i);
-            menuItemFrameDx -= dx * (float) menuItemWidths[i - 1] / (float) itemMenuWidth;
-            menuItemFrame.setTranslationX(menuItemFrame.getTranslationX() + menuItemFrameDx);
+        setItemMenuParallax(state, (FrameLayout) itemView.getChildAt(itemChildCount - 1));
+        if (translationX == 0) {
+            state.hideMenu();
         }
     }
 
-    private static final class TranslateItemViewXAnimator extends ValueAnimator {
-        final AnimatorListener listener;
+    private void updateOpenItemIndex(ViewGroup itemView, boolean open) {
+        // Item views animating out after their removal are no longer children of ours,
+        // nor are the ones being recycled, and the item view closed on detaching from
+        // the window is to be reopened on reattaching.
+        if (itemView.getParent() != this || mDetachingFromWindow) return;
 
-        float cachedDeltaTransX;
+        final ViewHolder holder = getChildViewHolder(itemView);
+        final int position = holder.getAbsoluteAdapterPosition();
+        if (position == NO_POSITION) return;
 
-        TranslateItemViewXAnimator(final SlidingItemMenuRecyclerView parent, final ViewGroup itemView) {
-            listener = new AnimatorListenerAdapter() {
-                final SimpleArrayMap<View, /* Layer Type */ Integer> childrenLayerTypes =
-                        new SimpleArrayMap<>(0);
+        if (open) {
+            mOpenItemIndex.add(position, holder.getItemId());
+        } else {
+            mOpenItemIndex.remove(position);
+        }
+    }
 
-                void ensureChildrenLayerTypes() {
-                    final int itemChildCount = itemView.getChildCount();
-                    final ViewGroup itemMenu = (ViewGroup) itemView.getChildAt(
-                            itemChildCount - 1);
-                    final int menuItemCount = itemMenu.getChildCount();
+    /**
+     * Opens the item views bound to the items in {@link #mOpenItemIndex} fully and closes
+     * the others, each in a single write without animation, except for the ones being animated
+     * or dragged.
+     */
+    /*synthetic*/ void syncItemViewsWithOpenItemIndex() {
+        for (int i = getChildCount() - 1; i >= 0; i--) {
+            final View child = getChildAt(i);
+            if (!(child instanceof ViewGroup)) continue;
+
+            final ViewGroup itemView = (ViewGroup) child;
+            final int position = getChildViewHolder(itemView).getAbsoluteAdapterPosition();
+            if (position == NO_POSITION) continue;
+
+            ItemSwipeState state = getItemSwipeState(itemView);
+            if (state != null && (state.animating
+                    || itemView == mActiveItem && mGestureEngine.isDragging())) {
+                continue;
+            }
+            final float x;
+            if (mOpenItemIndex.contains(position)) {
+                if (!ensureItemMenu(itemView)) continue;
+
+                state = getItemSwipeState(itemView);
+                x = state.rtl ? state.itemMenuWidth : -state.itemMenuWidth;
+                mFullyOpenedItem = itemView;
+            } else if (state != null) {
+                x = 0;
+            } else {
+                continue;
+            }
+            baseTranslateItemViewXBy(state, x - state.translationX);
+        }
+    }
 
-                    // We do not know whether the cached children are valid or not, so just
-                    // clear the Map and re-put some children into it, of which the layer types
-                    // will also be up-to-date.
-                    childrenLayerTypes.clear();
-                    childrenLayerTypes.ensureCapacity(
-                            itemChildCount - 1 + menuItemCount);
-                    for (int i = 0; i < itemChildCount - 1; i++) {
-                        final View itemChild = itemView.getChildAt(i);
-                        childrenLayerTypes.put(itemChild, itemChild.getLayerType());
-                    }
-                    for (int i = 0; i < menuItemCount; i++) {
-                        final View menuItemFrame = itemMenu.getChildAt(i);
-                        childrenLayerTypes.put(menuItemFrame, menuItemFrame.getLayerType());
-                    }
+    /**
+     * Closes the item view of the given holder immediately, so that its translation does not
+     * leak onto the item it is bound to next, leaving the item itself open or closed in
+     * {@link #mOpenItemIndex} as it is or is being animated to be.
+     */
+    /*synthetic*/ void resetRecycledItemView(ViewHolder holder) {
+        final ViewGroup itemView = (ViewGroup) holder.itemView;
+        final ItemSwipeState state = getItemSwipeState(itemView);
+        if (state == null) return;
+
+        if (state.animating) {
+            final int position = holder.getAbsoluteAdapterPosition();
+            if (position != NO_POSITION) {
+                final float finalX = state.animStartX + state.animDeltaX;
+                if (finalX == 0) {
+                    mOpenItemIndex.remove(position);
+                } else if (finalX == (state.rtl ? state.itemMenuWidth : -state.itemMenuWidth)) {
+                    mOpenItemIndex.add(position, holder.getItemId());
                 }
+            }
+            mItemAnimationDriver.cancel(state);
+        }
+        if (mFullyOpenedItem == itemView) {
+            mFullyOpenedItem = null;
+        }
+        baseTranslateItemViewXBy(state, -state.translationX);
+    }
 
-                @SuppressLint("ObsoleteSdkInt")
-                @Override
-                public void onAnimationStart(Animator animation) {
-                    ensureChildrenLayerTypes();
-                    for (int i = childrenLayerTypes.size() - 1; i >= 0; i--) {
-                        final View child = childrenLayerTypes.keyAt(i);
-                        child.setLayerType(LAYER_TYPE_HARDWARE, null);
-                        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.HONEYCOMB_MR1
-                                && ViewCompat.isAttachedToWindow(child)) {
-                            child.buildLayer();
-                        }
-                    }
-                }
+    /**
+     * Translates the menu item frames of the given item view to where they should be for
+     * its current translation, in {@link #ITEM_TRANSLATION_MODE_SCROLL scroll mode}.
+     */
+    /*synthetic*/ void applyItemMenuParallax(ItemSwipeState state) {
+        state.parallaxPending = false;
+        final ViewGroup itemView = state.itemView;
+        setItemMenuParallax(state,
+                (FrameLayout) itemView.getChildAt(itemView.getChildCount() - 1));
+    }
 
-                @Override
-                public void onAnimationEnd(Animator animation) {
-                    for (int i = childrenLayerTypes.size() - 1; i >= 0; i--) {
-                        childrenLayerTypes.keyAt(i).setLayerType(
-                                childrenLayerTypes.valueAt(i), null);
-                    }
+    /**
+     * Sets the absolute translation of every menu item frame straight from the translation of
+     * the item view, so that no error builds up however many times the item view is moved.
+     */
+    private static void setItemMenuParallax(ItemSwipeState state, FrameLayout itemMenu) {
+        final float[] parallaxFractions = state.menuItemParallaxFractions;
+        final float translationX = state.translationX;
+        // Menu items may be added or removed before the cached geometry gets refreshed.
+        final int count = Math.min(itemMenu.getChildCount(), state.menuItemCount);
+        for (int i = 1; i < count; i++) {
+            itemMenu.getChildAt(i).setTranslationX(-translationX * parallaxFractions[i]);
+        }
+    }
+
+    /*synthetic*/ void onItemAnimationStart(ItemSwipeState state) {
+        // Reveals the menu before building layers for it.
+        state.showMenu();
+        state.animUsedLayers = false;
+        if (mItemLayerStrategy == ITEM_LAYER_STRATEGY_NEVER) return;
+        if (mItemLayerStrategy == ITEM_LAYER_STRATEGY_ADAPTIVE
+                && mItemAnimationDriver.getRunningAnimationCount()
+                        > ADAPTIVE_MAX_LAYERED_ITEM_ANIMATIONS) {
+            return;
+        }
+
+        final long bytes = state.estimateLayerBytes();
+        if (mItemLayerStrategy == ITEM_LAYER_STRATEGY_ADAPTIVE
+                && bytes > mItemLayerMemoryBudget / ADAPTIVE_MAX_LAYERED_ITEM_ANIMATIONS) {
+            return;
+        }
+        if (bytes == 0 || mItemLayerBytesInUse + bytes > mItemLayerMemoryBudget) {
+            return;
+        }
+        mItemLayerBytesInUse += bytes;
+        state.layerBytes = bytes;
+        state.animUsedLayers = true;
+        state.enableHardwareLayers();
+    }
+
+    /*synthetic*/ void onItemAnimationEnd(ItemSwipeState state) {
+        if (state.layerBytes > 0) {
+            mItemLayerBytesInUse -= state.layerBytes;
+            state.layerBytes = 0;
+            state.restoreLayerTypes();
+        }
+        if (state.metricsPending) {
+            state.metricsPending = false;
+            if (mOnItemSwipeMetricsListener != null) {
+                dispatchItemSwipeMetrics(state, state.metricsDownToFirstTranslation,
+                        state.metricsDragFrameCount, true);
+            }
+        }
+    }
+
+    @Override
+    public void onChildAttachedToWindow(@NonNull View child) {
+        super.onChildAttachedToWindow(child);
+        if (child instanceof ViewGroup) {
+            final ViewGroup itemView = (ViewGroup) child;
+            final FrameLayout itemMenu = getItemMenu(itemView);
+            if (itemMenu != null) {
+                final ItemSwipeState state = obtainItemSwipeState(itemView);
+                state.bindMenu(itemMenu);
+                mItemMenuGeometryPending = true;
+                mOpenItemIndexSyncPending = true;
+                if (state.parallaxPending) {
+                    applyItemMenuParallax(state);
                 }
-            };
-            addListener(listener);
-            addUpdateListener(animation -> {
-                final float deltaTransX = (float) animation.getAnimatedValue();
-                parent.baseTranslateItemViewXBy(itemView, deltaTransX - cachedDeltaTransX);
-                cachedDeltaTransX = deltaTransX;
-            });
+                // Nothing of the menu of a closed item view is visible, so skip drawing it
+                // until the item view is translated.
+                if (state.translationX == 0) {
+                    state.hideMenu();
+                }
+            } else if (childHasMenuPlaceholder(itemView)) {
+                // The menu is only attached if the item is to be reopened.
+                mOpenItemIndexSyncPending = true;
+            }
+        }
+    }
+
+    @Override
+    protected Parcelable onSaveInstanceState() {
+        final SavedState ss = new SavedState(super.onSaveInstanceState());
+        ss.openItemPositions = mOpenItemIndex.encodePositions();
+        final Adapter<?> adapter = getAdapter();
+        if (adapter != null && adapter.hasStableIds()) {
+            // Lets the items be found again by their ids once the data is loaded again.
+            ss.openItemIds = mOpenItemIndex.getIds();
+        }
+        return ss;
+    }
+
+    @Override
+    protected void onRestoreInstanceState(Parcelable state) {
+        if (!(state instanceof SavedState)) {
+            super.onRestoreInstanceState(state);
+            return;
+        }
+        final SavedState ss = (SavedState) state;
+        super.onRestoreInstanceState(ss.getSuperState());
+        mOpenItemIndex.decodePositions(ss.openItemPositions, ss.openItemIds);
+        mOpenItemIndexSyncPending = true;
+        invalidate();
+    }
+
+    /**
+     * The saved state of this view, which also holds the positions of the open items in the
+     * compact encoding of {@link OpenItemIndex#encodePositions()}, so that it stays small for
+     * lists of any length, along with their stable ids if the adapter has stable ids.
+     */
+    static class SavedState extends AbsSavedState {
+        byte[] openItemPositions;
+        long[] openItemIds;
+
+        SavedState(Parcelable superState) {
+            super(superState);
+        }
+
+        SavedState(Parcel in, ClassLoader loader) {
+            super(in, loader);
+            openItemPositions = in.createByteArray();
+            openItemIds = in.createLongArray();
         }
 
         @Override
-        public void start() {
-            // NOTE: 'cachedDeltaTransX' MUST be reset before super.start() is invoked
-            // for the reason that 'onAnimationUpdate' will be called in the super method
-            // on platforms prior to Nougat.
-            cachedDeltaTransX = 0;
-            super.start();
+        public void writeToParcel(Parcel dest, int flags) {
+            super.writeToParcel(dest, flags);
+            dest.writeByteArray(openItemPositions);
+            dest.writeLongArray(openItemIds);
         }
+
+        public static final Creator<SavedState> CREATOR = new ClassLoaderCreator<SavedState>() {
+            @Override
+            public SavedState createFromParcel(Parcel in, ClassLoader loader) {
+                return new SavedState(in, loader);
+            }
+
+            @Override
+            public SavedState createFromParcel(Parcel in) {
+                return new SavedState(in, null);
+            }
+
+            @Override
+            public SavedState[] newArray(int size) {
+                return new SavedState[size];
+            }
+        };
+    }
+
+    @Override
+    protected void onAttachedToWindow() {
+        super.onAttachedToWindow();
+        getViewTreeObserver().addOnPreDrawListener(mItemParallaxUpdater);
+        mOpenItemIndexSyncPending = true;
+        final Display display = ViewCompat.getDisplay(this);
+        mItemAnimationDriver.setRefreshRate(display != null ? display.getRefreshRate() : 0);
+        mItemAnimationDriver.setDurationScale(getAnimatorDurationScale());
+    }
+
+    @Override
+    public void onWindowFocusChanged(boolean hasWindowFocus) {
+        super.onWindowFocusChanged(hasWindowFocus);
+        // The developer options may have been changed while the window was in the background.
+        if (hasWindowFocus) {
+            mItemAnimationDriver.setDurationScale(getAnimatorDurationScale());
+        }
+    }
+
+    /** @return the animator duration scale set in the developer options, 1 by default */
+    @SuppressWarnings("deprecation")
+    private float getAnimatorDurationScale() {
+        final ContentResolver resolver = getContext().getContentResolver();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN_MR1) {
+            return Settings.Global.getFloat(
+                    resolver, Settings.Global.ANIMATOR_DURATION_SCALE, 1f);
+        }
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.JELLY_BEAN) {
+            return Settings.System.getFloat(
+                    resolver, Settings.System.ANIMATOR_DURATION_SCALE, 1f);
+        }
+        return 1f;
     }
 
     @Override
     protected void onDetachedFromWindow() {
         super.onDetachedFromWindow();
+        getViewTreeObserver().removeOnPreDrawListener(mItemParallaxUpdater);
+        removeCallbacks(mItemMenuGeometryResolver);
+        mItemMenuGeometryPending = false;
+        mItemAnimationDriver.endAll();
+        mDetachingFromWindow = true;
         releaseItemViewInternal(mFullyOpenedItem, 0);
-        if (mOpenedItems.size() > 0) {
-            final ViewGroup[] openedItems = mOpenedItems.toArray(new ViewGroup[0]);
-            for (ViewGroup openedItem : openedItems) {
-                final Animator animator = (Animator) openedItem.getTag(TAG_ITEM_ANIMATOR);
-                if (animator != null && animator.isRunning()) {
-                    animator.end();
-                }
-            }
-            mOpenedItems.clear();
-        }
+        mDetachingFromWindow = false;
+        mItemAnimationDriver.unscheduleFrame();
+        mOpenedItems.clear();
     }
 }
\ No newline at end of file
@@ -0,0 +1,255 @@
+package com.liuzhenlin.simrv;
+
+/**
+ * The decisions made on a touch event stream for swiping item views, free of any framework
+ * class so that they can be unit tested and benchmarked on a plain JVM.
+ * <p>
+ * It is fed with the coordinates of the touch events of a single gesture, and tells when an item
+ * view starts being dragged, how far the dragged one follows the finger and how it settles
+ * as the finger lifts. What item view is touched and what is to be done with it is left to
+ * the caller, which describes the item views to it by their translations and menu widths only.
+ * Nothing is allocated once it is constructed.
+ */
+final class SwipeGestureEngine {
+
+    /**
+     * The finger downs on the menu of the fully open item view: the events are delivered to
+     * the menu unless the item view starts being dragged.
+     */
+    static final int DOWN_DELIVER_TO_MENU = 0;
+    /** The subsequent events are to be intercepted, leaving the open item views as they are. */
+    static final int DOWN_INTERCEPT = 1;
+    /** The open item views are to be closed and the subsequent events intercepted. */
+    static final int DOWN_RELEASE_AND_INTERCEPT = 2;
+
+    /** The released item view is closed already. */
+    static final int RELEASE_NONE = 0;
+    /** The released item view is fully open already. */
+    static final int RELEASE_OPENED = 1;
+    /** The released item view is to be scrolled to open. */
+    static final int RELEASE_OPEN = 2;
+    /** The released item view is to be scrolled to close. */
+    static final int RELEASE_CLOSE = 3;
+
+    /** Distance to travel before drag may begin */
+    private final int mTouchSlop;
+
+    /** Minimum gesture speed along the x axis to automatically scroll item views */
+    private final float mMinimumFlingVelocity;
+
+    private int mDownX;
+    private int mDownY;
+
+    private float mTouchX;
+    private float mTouchY;
+
+    /** Estimates the horizontal motion of the finger from all the samples of the gesture */
+    private final TouchMotionEstimator mTouchMotionEstimator = new TouchMotionEstimator();
+
+    /** True, if an item view is being dragged by the user. */
+    private boolean mDragging;
+
+    /** The x coordinate of the finger (or its prediction) the dragged item view last followed */
+    private float mDragTargetX;
+
+    /** Whether or not some item view is fully open as the finger downs. */
+    private boolean mHasItemFullyOpenOnDown;
+
+    /** Whether or not the finger downs on the menu of the fully open item view. */
+    private boolean mDownOnFullyOpenItemMenu;
+
+    SwipeGestureEngine(int touchSlop, float minimumFlingVelocity) {
+        mTouchSlop = touchSlop;
+        mMinimumFlingVelocity = minimumFlingVelocity;
+    }
+
+    /** Forgets everything about the current gesture. */
+    void reset() {
+        mDragging = false;
+        mHasItemFullyOpenOnDown = false;
+        mDownOnFullyOpenItemMenu = false;
+        mTouchMotionEstimator.clear();
+    }
+
+    /**
+     * Starts a new gesture at the given point, rounded to whole pixels.
+     *
+     * @param time the time of the event in milliseconds
+     */
+    void onDown(long time, float x, float y) {
+        reset();
+        // Rounds as Utils.roundFloat() does, which is not available off the framework.
+        mDownX = (int) (x > 0 ? x + 0.5f : x - 0.5f);
+        mDownY = (int) (y > 0 ? y + 0.5f : y - 0.5f);
+        mTouchX = mDownX;
+        mTouchY = mDownY;
+        mTouchMotionEstimator.addSample(time, x);
+    }
+
+    /**
+     * Decides what to do with the gesture that has just started while some item views are open.
+     *
+     * @param hasFullyOpenItem   whether some item view is fully open
+     * @param onFullyOpenItem    whether the finger downs on the fully open item view
+     * @param onFullyOpenItsMenu whether the finger downs on the menu of the fully open item view
+     * @return one of the DOWN_* constants
+     */
+    int onDownWithItemsOpen(boolean hasFullyOpenItem, boolean onFullyOpenItem,
+                            boolean onFullyOpenItsMenu) {
+        if (hasFullyOpenItem) {
+            mHasItemFullyOpenOnDown = true;
+            if (onFullyOpenItem) {
+                // If the finger downs on the menu, let it handle the events, otherwise intercept
+                // them to close the item view in the end.
+                if (onFullyOpenItsMenu) {
+                    mDownOnFullyOpenItemMenu = true;
+                    return DOWN_DELIVER_TO_MENU;
+                }
+                return DOWN_INTERCEPT;
+            }
+            // Downs on another item view or outside of any one.
+            return DOWN_RELEASE_AND_INTERCEPT;
+        }
+        // Intercepts the events as long as some item view is partially open, which prevents
+        // the pressed child from being clicked.
+        return DOWN_INTERCEPT;
+    }
+
+    /** Moves the current touch point, without adding a sample for the estimation. */
+    void onMove(float x, float y) {
+        mTouchX = x;
+        mTouchY = y;
+    }
+
+    /**
+     * Adds a sample of the finger position for estimating its motion.
+     *
+     * @param time the time of the sample in milliseconds
+     */
+    void addSample(long time, float x) {
+        mTouchMotionEstimator.addSample(time, x);
+    }
+
+    /**
+     * Starts dragging the touched item view if the finger has moved over the touch slop
+     * horizontally but not vertically. With no item view open, only the movement towards
+     * the horizontal start counts, which opens the touched one.
+     *
+     * @param rtl            whether the touched item view is laid out from right to left
+     * @param hasOpenedItems whether any item view is open or opening
+     * @return true if the item view starts being dragged
+     */
+    boolean tryStartDrag(boolean rtl, boolean hasOpenedItems) {
+        mDragging = false;
+        if (Math.abs(mTouchY - mDownY) <= mTouchSlop) {
+            final float dx = mTouchX - mDownX;
+            if (hasOpenedItems) {
+                mDragging = Math.abs(dx) > mTouchSlop;
+            } else {
+                mDragging = rtl && dx > mTouchSlop || !rtl && dx < -mTouchSlop;
+            }
+            if (mDragging) {
+                mDragTargetX = mTouchX;
+            }
+        }
+        return mDragging;
+    }
+
+    /** Stops dragging the item view, e.g. as it turns out to be unable to be dragged. */
+    void cancelDrag() {
+        mDragging = false;
+    }
+
+    /**
+     * Computes how far the dragged item view follows the finger since the last call.
+     *
+     * @param translationX     the current translation of the item view, positive towards right
+     * @param itemMenuWidth    the width of the menu of the item view
+     * @param rtl              whether the item view is laid out from right to left
+     * @param predictionMillis how far ahead of the latest sample the finger position is predicted,
+     *                         or 0 to follow the current touch point
+     * @return the distance to translate the item view by, positive towards right
+     */
+    float computeDragDelta(float translationX, int itemMenuWidth, boolean rtl,
+                           long predictionMillis) {
+        final float targetX = predictionMillis > 0
+                ? mTouchMotionEstimator.predictPosition(predictionMillis) : mTouchX;
+        final float dx = targetX - mDragTargetX;
+        mDragTargetX = targetX;
+        return resistDragDelta(dx, translationX, itemMenuWidth, rtl);
+    }
+
+    /**
+     * Slows an item view dragged over the width of its menu down to 1/3 of the finger speed,
+     * and stops the one dragged towards the horizontal end at its original position.
+     */
+    static float resistDragDelta(float dx, float translationX, int itemMenuWidth, boolean rtl) {
+        final int finalXFromEndToStart = rtl ? itemMenuWidth : -itemMenuWidth;
+        if (!rtl && dx + translationX < finalXFromEndToStart
+                || rtl && dx + translationX > finalXFromEndToStart) {
+            return dx / 3f;
+        } else if (!rtl && dx + translationX > 0 || rtl && dx + translationX < 0) {
+            return 0 - translationX;
+        }
+        return dx;
+    }
+
+    /** @return whether the estimator has got enough samples for {@link #getVelocity()} */
+    boolean hasVelocity() {
+        return mTouchMotionEstimator.getSampleCount() >= 2;
+    }
+
+    /** @return the velocity of the finger along the x axis in pixels per second */
+    float getVelocity() {
+        return mTouchMotionEstimator.getVelocity();
+    }
+
+    /**
+     * Decides how the dragged item view settles as the finger lifts. It is flung to open or close
+     * if the finger moves fast enough towards the horizontal start or end, otherwise it goes to
+     * the nearer one of the two ends.
+     *
+     * @param translationX  the current translation of the item view, positive towards right
+     * @param itemMenuWidth the width of the menu of the item view
+     * @param rtl           whether the item view is laid out from right to left
+     * @param xVelocity     the velocity of the finger along the x axis in pixels per second
+     * @return one of the RELEASE_* constants
+     */
+    int decideRelease(float translationX, int itemMenuWidth, boolean rtl, float xVelocity) {
+        if (translationX == 0) {
+            return RELEASE_NONE;
+        }
+        if (!rtl && translationX == -itemMenuWidth || rtl && translationX == itemMenuWidth) {
+            return RELEASE_OPENED;
+        }
+        // Negative when the finger was moving towards the horizontal start.
+        final float dx = rtl ? -xVelocity : xVelocity;
+        if (Math.abs(xVelocity) >= mMinimumFlingVelocity) {
+            if (dx < 0) return RELEASE_OPEN;
+            if (dx > 0) return RELEASE_CLOSE;
+        }
+        return Math.abs(translationX) < itemMenuWidth / 2f ? RELEASE_CLOSE : RELEASE_OPEN;
+    }
+
+    int getDownX() {
+        return mDownX;
+    }
+
+    int getDownY() {
+        return mDownY;
+    }
+
+    boolean isDragging() {
+        return mDragging;
+    }
+
+    /** @see #onDownWithItemsOpen(boolean, boolean, boolean) */
+    boolean hasItemFullyOpenOnDown() {
+        return mHasItemFullyOpenOnDown;
+    }
+
+    /** @see #onDownWithItemsOpen(boolean, boolean, boolean) */
+    boolean isDownOnFullyOpenItemMenu() {
+        return mDownOnFullyOpenItemMenu;
+    }
+}
@@ -0,0 +1,77 @@
+package com.liuzhenlin.simrv;
+
+import android.view.MotionEvent;
+
+import androidx.annotation.NonNull;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Records touch events, including their historical samples, into a compact binary stream that
+ * can be replayed by a {@link TouchEventReplayer} later on, e.g., for turning a problematic
+ * gesture captured in production into a fixture of the regression tests.
+ * <p>
+ * Set it to a {@link SlidingItemMenuRecyclerView} with
+ * {@link SlidingItemMenuRecyclerView#setTouchEventRecorder(TouchEventRecorder)} to record all
+ * the touch events dispatched to it, in its own coordinates. Nothing is allocated per event
+ * once the largest event has been recorded, and the events are only written to the given
+ * stream in chunks, on a background thread of the recorder, so that recording an event never
+ * blocks on the I/O of the stream. Only {@link #flush()} and {@link #close()} wait for the
+ * events to be written.
+ */
+public final class TouchEventRecorder implements Closeable {
+    private final TouchStreamWriter mWriter;
+    private final TouchRecord mRecord = new TouchRecord();
+
+    /**
+     * Creates a recorder writing to the given stream, which it takes over and only writes to
+     * on its background thread.
+     *
+     * @throws IOException if the header of the stream fails to be written
+     */
+    public TouchEventRecorder(@NonNull OutputStream out) throws IOException {
+        mWriter = new TouchStreamWriter(new BackgroundOutputStream(out, "TouchEventRecorder"));
+    }
+
+    /**
+     * Records the given event with all of its pointers and historical samples.
+     *
+     * @throws IOException if the stream failed to write the events recorded earlier
+     */
+    public void record(@NonNull MotionEvent e) throws IOException {
+        final int pointerCount = e.getPointerCount();
+        final int historySize = e.getHistorySize();
+        final TouchRecord record = mRecord;
+        record.setSize(pointerCount, historySize + 1);
+        record.action = e.getAction();
+        record.eventTime = e.getEventTime();
+        record.downTime = e.getDownTime();
+        for (int i = 0; i < pointerCount; i++) {
+            record.pointerIds[i] = e.getPointerId(i);
+        }
+        for (int h = 0; h < historySize; h++) {
+            record.sampleTimes[h] = e.getHistoricalEventTime(h);
+            for (int i = 0; i < pointerCount; i++) {
+                record.setCoordinates(h, i, e.getHistoricalX(i, h), e.getHistoricalY(i, h));
+            }
+        }
+        record.sampleTimes[historySize] = e.getEventTime();
+        for (int i = 0; i < pointerCount; i++) {
+            record.setCoordinates(historySize, i, e.getX(i), e.getY(i));
+        }
+        mWriter.write(record);
+    }
+
+    /** Writes all the events recorded so far to the underlying stream, waiting for it. */
+    public void flush() throws IOException {
+        mWriter.flush();
+    }
+
+    /** Writes all the events recorded so far and closes the underlying stream. */
+    @Override
+    public void close() throws IOException {
+        mWriter.close();
+    }
+}
@@ -0,0 +1,207 @@
+package com.liuzhenlin.simrv;
+
+import android.os.Handler;
+import android.os.Looper;
+import android.os.SystemClock;
+import android.view.InputDevice;
+import android.view.MotionEvent;
+import android.view.View;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Replays the touch events recorded by a {@link TouchEventRecorder}, either one by one through
+ * {@link #readEvent()}, or into a view with the same timing as they were recorded through
+ * {@link #replay(View, OnReplayEndListener)}.
+ * <p>
+ * The stream is read as the events are replayed, no more than a small buffer ahead, so
+ * recordings of any length can be replayed in constant memory.
+ */
+public final class TouchEventReplayer implements Closeable {
+    private final TouchStreamReader mReader;
+    private final TouchRecord mRecord = new TouchRecord();
+    private MotionEvent.PointerCoords[] mPointerCoords = new MotionEvent.PointerCoords[0];
+
+    /** The time the first event is shifted to, or -1 to keep the recorded times */
+    private long mTimeBase = -1;
+    private long mTimeOffset;
+    private boolean mFirstEventRead;
+
+    private Handler mHandler;
+    /*synthetic*/ View mTarget;
+    private OnReplayEndListener mOnReplayEndListener;
+    /*synthetic*/ MotionEvent mPendingEvent;
+
+    private final Runnable mDispatcher = new Runnable() {
+        @Override
+        public void run() {
+            final MotionEvent e = mPendingEvent;
+            mPendingEvent = null;
+            mTarget.dispatchTouchEvent(e);
+            e.recycle();
+            // The replay may have been canceled by the target or a listener of it, and may even
+            // have been restarted, with the next event scheduled already.
+            if (mTarget == null || mPendingEvent != null) return;
+
+            scheduleNextEvent();
+        }
+    };
+
+    /** Listener notified when a replay started by {@link #replay} ends. */
+    public interface OnReplayEndListener {
+        /**
+         * Called once all the events have been replayed, or the stream has failed to be read.
+         *
+         * @param error the error reading the stream, or null if it has been read to the end
+         */
+        void onReplayEnd(@Nullable IOException error);
+    }
+
+    /**
+     * Creates a replayer reading from the given stream, which it takes over.
+     *
+     * @throws IOException if the stream is not a touch stream or fails to be read
+     */
+    public TouchEventReplayer(@NonNull InputStream in) throws IOException {
+        mReader = new TouchStreamReader(in);
+    }
+
+    /**
+     * Shifts the times of all the events read afterwards, so that the first event of the stream
+     * happens at the given time, in the {@link SystemClock#uptimeMillis()} time base.
+     *
+     * @throws IllegalStateException if some event has already been read
+     */
+    public void setTimeBase(long firstEventTime) {
+        if (mFirstEventRead) {
+            throw new IllegalStateException("Events have already been read");
+        }
+        mTimeBase = firstEventTime;
+    }
+
+    /**
+     * Reads the next event, which is to be recycled by the caller.
+     *
+     * @return the next event, or null if the end of the stream has been reached
+     */
+    @SuppressWarnings("deprecation")
+    @Nullable
+    public MotionEvent readEvent() throws IOException {
+        final TouchRecord record = mRecord;
+        if (!mReader.read(record)) {
+            return null;
+        }
+        if (!mFirstEventRead) {
+            mFirstEventRead = true;
+            mTimeOffset = mTimeBase == -1 ? 0 : mTimeBase - record.eventTime;
+        }
+
+        final int pointerCount = record.pointerCount;
+        if (mPointerCoords.length < pointerCount) {
+            final MotionEvent.PointerCoords[] coords =
+                    new MotionEvent.PointerCoords[pointerCount];
+            System.arraycopy(mPointerCoords, 0, coords, 0, mPointerCoords.length);
+            for (int i = mPointerCoords.length; i < pointerCount; i++) {
+                coords[i] = new MotionEvent.PointerCoords();
+                coords[i].pressure = 1f;
+                coords[i].size = 1f;
+            }
+            mPointerCoords = coords;
+        }
+
+        // The oldest sample makes the event, and the others are added to it one by one.
+        setPointerCoords(record, 0);
+        // With the pointer ids rather than the pointer properties, which require API 14
+        final MotionEvent e = MotionEvent.obtain(
+                record.downTime + mTimeOffset, record.sampleTimes[0] + mTimeOffset,
+                record.action, pointerCount, record.pointerIds, mPointerCoords,
+                0, 1f, 1f, 0, 0, InputDevice.SOURCE_TOUCHSCREEN, 0);
+        for (int i = 1; i < record.sampleCount; i++) {
+            setPointerCoords(record, i);
+            e.addBatch(record.sampleTimes[i] + mTimeOffset, mPointerCoords, 0);
+        }
+        return e;
+    }
+
+    private void setPointerCoords(TouchRecord record, int sample) {
+        for (int i = 0; i < record.pointerCount; i++) {
+            final MotionEvent.PointerCoords coords = mPointerCoords[i];
+            coords.x = record.getX(sample, i);
+            coords.y = record.getY(sample, i);
+        }
+    }
+
+    /**
+     * Dispatches all the remaining events to the given view on the main thread, each at
+     * the time it was recorded relative to the first one, with its times shifted to now.
+     *
+     * @param listener the listener to be notified when the replay ends, or null
+     * @throws IllegalStateException if a replay is already in progress
+     */
+    public void replay(@NonNull View target, @Nullable OnReplayEndListener listener) {
+        if (mTarget != null) {
+            throw new IllegalStateException("A replay is already in progress");
+        }
+        if (mHandler == null) {
+            mHandler = new Handler(Looper.getMainLooper());
+        }
+        if (!mFirstEventRead) {
+            mTimeBase = SystemClock.uptimeMillis();
+        }
+        mTarget = target;
+        mOnReplayEndListener = listener;
+        scheduleNextEvent();
+    }
+
+    /*synthetic*/ void scheduleNextEvent() {
+        if (mTarget == null) return;
+
+        final MotionEvent e;
+        try {
+            e = readEvent();
+        } catch (IOException ex) {
+            endReplay(ex);
+            return;
+        }
+        if (e == null) {
+            endReplay(null);
+        } else {
+            mPendingEvent = e;
+            mHandler.postAtTime(mDispatcher, e.getEventTime());
+        }
+    }
+
+    private void endReplay(IOException error) {
+        final OnReplayEndListener listener = mOnReplayEndListener;
+        mTarget = null;
+        mOnReplayEndListener = null;
+        if (listener != null) {
+            listener.onReplayEnd(error);
+        }
+    }
+
+    /** Stops the replay in progress, if any, without notifying its listener. */
+    public void cancel() {
+        if (mTarget != null) {
+            mHandler.removeCallbacks(mDispatcher);
+            if (mPendingEvent != null) {
+                mPendingEvent.recycle();
+                mPendingEvent = null;
+            }
+            mTarget = null;
+            mOnReplayEndListener = null;
+        }
+    }
+
+    /** Cancels the replay in progress, if any, and closes the underlying stream. */
+    @Override
+    public void close() throws IOException {
+        cancel();
+        mReader.close();
+    }
+}
@@ -0,0 +1,117 @@
+package com.liuzhenlin.simrv;
+
+/**
+ * Estimates the velocity of a pointer along one axis from all of its recent samples, including
+ * the historical ones batched into each move event, and extrapolates its position a little into
+ * the future from that, so that a dragged item view can be drawn where the finger will be rather
+ * than where it was.
+ * <p>
+ * The velocity is the slope of the least-squares line fitted to the samples within the last
+ * {@link #WINDOW_MILLIS} milliseconds, which smooths out the jitter of individual samples.
+ * The samples are kept in fixed-size ring buffers, so nothing is allocated per sample.
+ */
+final class TouchMotionEstimator {
+    /** Samples older than this relative to the latest one are not taken into account. */
+    static final int WINDOW_MILLIS = 50;
+
+    private static final int CAPACITY = 20;
+
+    private final long[] mTimes = new long[CAPACITY];
+    private final float[] mPositions = new float[CAPACITY];
+    private int mNewest = -1;
+    private int mCount;
+
+    void clear() {
+        mNewest = -1;
+        mCount = 0;
+    }
+
+    /**
+     * Adds a sample of the pointer position, which is ignored if it is older than the latest one.
+     *
+     * @param time the time of the sample in milliseconds, as of {@link
+     *             android.view.MotionEvent#getEventTime()}
+     */
+    void addSample(long time, float position) {
+        if (mCount > 0 && time < mTimes[mNewest]) return;
+
+        mNewest = (mNewest + 1) % CAPACITY;
+        mTimes[mNewest] = time;
+        mPositions[mNewest] = position;
+        if (mCount < CAPACITY) {
+            mCount++;
+        }
+    }
+
+    int getSampleCount() {
+        return mCount;
+    }
+
+    /** @return the position of the latest sample, or 0 if there is none */
+    float getLatestPosition() {
+        return mCount > 0 ? mPositions[mNewest] : 0;
+    }
+
+    /**
+     * @return the estimated velocity in pixels per second at the time of the latest sample,
+     *         or 0 if there are not at least two samples within the window
+     */
+    float getVelocity() {
+        if (mCount < 2) return 0;
+
+        final long newestTime = mTimes[mNewest];
+        // Fits x = a + b * t with t relative to the latest sample to keep the sums small.
+        int n = 0;
+        float sumT = 0, sumX = 0, sumTT = 0, sumTX = 0;
+        for (int i = 0, index = mNewest; i < mCount; i++) {
+            final long age = newestTime - mTimes[index];
+            if (age > WINDOW_MILLIS) break;
+
+            final float t = -age;
+            final float x = mPositions[index] - mPositions[mNewest];
+            sumT += t;
+            sumX += x;
+            sumTT += t * t;
+            sumTX += t * x;
+            n++;
+            index = index == 0 ? CAPACITY - 1 : index - 1;
+        }
+        if (n < 2) return 0;
+
+        final float denominator = n * sumTT - sumT * sumT;
+        if (denominator == 0) return 0;
+        return (n * sumTX - sumT * sumX) / denominator * 1000f;
+    }
+
+    /**
+     * Extrapolates the position of the pointer the given time after the latest sample with
+     * the estimated velocity. The extrapolation never goes further than the pointer has moved
+     * within the window, so that a sudden stop does not get overshot by much.
+     */
+    float predictPosition(long aheadMillis) {
+        if (mCount == 0) return 0;
+
+        final float latest = mPositions[mNewest];
+        float offset = getVelocity() * aheadMillis / 1000f;
+        if (offset != 0) {
+            final float recentTravel = Math.abs(latest - getOldestPositionInWindow());
+            if (offset > recentTravel) {
+                offset = recentTravel;
+            } else if (offset < -recentTravel) {
+                offset = -recentTravel;
+            }
+        }
+        return latest + offset;
+    }
+
+    private float getOldestPositionInWindow() {
+        final long newestTime = mTimes[mNewest];
+        int oldest = mNewest;
+        for (int i = 1, index = mNewest; i < mCount; i++) {
+            index = index == 0 ? CAPACITY - 1 : index - 1;
+            if (newestTime - mTimes[index] > WINDOW_MILLIS) break;
+            oldest = index;
+        }
+        return mPositions[oldest];
+    }
+}
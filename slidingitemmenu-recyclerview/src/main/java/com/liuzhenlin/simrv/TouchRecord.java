@@ -0,0 +1,82 @@
+package com.liuzhenlin.simrv;
+
+/**
+ * A touch event in the form it is recorded in a touch stream, free of any framework class.
+ * One instance is meant to be reused for all the events of a stream, growing its arrays as
+ * needed, so that recording or replaying the stream allocates nothing per event.
+ * <p>
+ * A touch stream starts with the 4 bytes of {@link #MAGIC} and the byte of {@link #VERSION},
+ * followed by the records of the events until the end of the stream. Each record consists of:
+ * <pre>
+ *   action          uvarint  MotionEvent#getAction(), with the pointer index
+ *   eventTimeDelta  svarint  eventTime - eventTime of the previous record (or 0)
+ *   downTimeOffset  svarint  eventTime - downTime
+ *   pointerCount    uvarint
+ *   pointerIds      uvarint  x pointerCount
+ *   sampleCount     uvarint  the number of historical samples + 1
+ *   samples         x sampleCount, oldest first and the current one last:
+ *     timeOffset    svarint  eventTime - the time of the sample
+ *     x, y          svarint  x pointerCount, in 1/256 pixels, relative to the coordinates of
+ *                            the pointer of the same index in the previous sample
+ * </pre>
+ * where uvarints are unsigned LEB128 integers and svarints are zigzag encoded ones. Since
+ * the coordinates and the times are stored as deltas, a sample of a steadily moving pointer
+ * mostly takes 5 to 7 bytes.
+ */
+final class TouchRecord {
+    static final byte[] MAGIC = {'S', 'I', 'M', 'T'};
+    static final int VERSION = 1;
+
+    /** The number of fraction bits of the fixed-point coordinates */
+    static final int COORDINATE_FRACTION_BITS = 8;
+
+    /** More pointers or samples than these in a record are taken as a corrupt stream. */
+    static final int MAX_POINTER_COUNT = 32;
+    static final int MAX_SAMPLE_COUNT = 1024;
+
+    int action;
+    long eventTime;
+    long downTime;
+
+    int pointerCount;
+    int[] pointerIds = new int[1];
+
+    int sampleCount;
+    long[] sampleTimes = new long[1];
+    /** The coordinates of the pointers, indexed by sample * pointerCount + pointer */
+    float[] xs = new float[1];
+    float[] ys = new float[1];
+
+    /**
+     * Makes room for the given numbers of pointers and samples, and sets them to the record,
+     * which leaves its contents undefined.
+     */
+    void setSize(int pointerCount, int sampleCount) {
+        this.pointerCount = pointerCount;
+        this.sampleCount = sampleCount;
+        if (pointerIds.length < pointerCount) {
+            pointerIds = new int[pointerCount];
+        }
+        if (sampleTimes.length < sampleCount) {
+            sampleTimes = new long[sampleCount];
+        }
+        final int coordinateCount = pointerCount * sampleCount;
+        if (xs.length < coordinateCount) {
+            xs = new float[coordinateCount];
+            ys = new float[coordinateCount];
+        }
+    }
+
+    float getX(int sample, int pointer) {
+        return xs[sample * pointerCount + pointer];
+    }
+
+    float getY(int sample, int pointer) {
+        return ys[sample * pointerCount + pointer];
+    }
+
+    void setCoordinates(int sample, int pointer, float x, float y) {
+        xs[sample * pointerCount + pointer] = x;
+        ys[sample * pointerCount + pointer] = y;
+    }
+}
@@ -0,0 +1,134 @@
+package com.liuzhenlin.simrv;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * Decodes the {@link TouchRecord}s of a touch stream one by one, as described there, reading
+ * no more of the underlying stream than a small buffer ahead, so that a stream of any length
+ * can be replayed in constant memory.
+ */
+final class TouchStreamReader implements Closeable {
+    private final InputStream mIn;
+
+    private final byte[] mBuffer = new byte[8192];
+    private int mPosition;
+    private int mLength;
+
+    private long mLastEventTime;
+    /** The fixed-point coordinates of each pointer index in the last sample read */
+    private int[] mLastXs = new int[2];
+    private int[] mLastYs = new int[2];
+
+    /**
+     * @throws IOException if the stream does not start with the header of a touch stream
+     *                     of a supported version
+     */
+    TouchStreamReader(InputStream in) throws IOException {
+        mIn = in;
+        for (byte b : TouchRecord.MAGIC) {
+            if (readByte() != b) {
+                throw new IOException("Not a touch stream");
+            }
+        }
+        final int version = readByte();
+        if (version != TouchRecord.VERSION) {
+            throw new IOException("Unsupported touch stream version: " + version);
+        }
+    }
+
+    /**
+     * Reads the next record into the given one.
+     *
+     * @return false if the end of the stream has been reached instead
+     * @throws EOFException if the stream ends in the middle of a record
+     */
+    boolean read(TouchRecord record) throws IOException {
+        if (mPosition == mLength && !fillBuffer()) {
+            return false;
+        }
+
+        record.action = (int) readUnsigned();
+        final long eventTime = mLastEventTime + readSigned();
+        record.eventTime = eventTime;
+        record.downTime = eventTime - readSigned();
+        mLastEventTime = eventTime;
+
+        final int pointerCount = (int) readUnsigned();
+        if (pointerCount < 1 || pointerCount > TouchRecord.MAX_POINTER_COUNT) {
+            throw new IOException("Corrupt touch stream: " + pointerCount + " pointers");
+        }
+        record.setSize(pointerCount, 1);
+        for (int i = 0; i < pointerCount; i++) {
+            record.pointerIds[i] = (int) readUnsigned();
+        }
+        final int sampleCount = (int) readUnsigned();
+        if (sampleCount < 1 || sampleCount > TouchRecord.MAX_SAMPLE_COUNT) {
+            throw new IOException("Corrupt touch stream: " + sampleCount + " samples");
+        }
+        record.setSize(pointerCount, sampleCount);
+        if (mLastXs.length < pointerCount) {
+            final int[] lastXs = new int[pointerCount];
+            final int[] lastYs = new int[pointerCount];
+            System.arraycopy(mLastXs, 0, lastXs, 0, mLastXs.length);
+            System.arraycopy(mLastYs, 0, lastYs, 0, mLastYs.length);
+            mLastXs = lastXs;
+            mLastYs = lastYs;
+        }
+
+        final float scale = 1f / (1 << TouchRecord.COORDINATE_FRACTION_BITS);
+        for (int i = 0, coordinate = 0; i < sampleCount; i++) {
+            record.sampleTimes[i] = eventTime - readSigned();
+            for (int j = 0; j < pointerCount; j++, coordinate++) {
+                final int x = mLastXs[j] + (int) readSigned();
+                final int y = mLastYs[j] + (int) readSigned();
+                record.xs[coordinate] = x * scale;
+                record.ys[coordinate] = y * scale;
+                mLastXs[j] = x;
+                mLastYs[j] = y;
+            }
+        }
+        return true;
+    }
+
+    private boolean fillBuffer() throws IOException {
+        final int length = mIn.read(mBuffer, 0, mBuffer.length);
+        if (length <= 0) {
+            return false;
+        }
+        mPosition = 0;
+        mLength = length;
+        return true;
+    }
+
+    private int readByte() throws IOException {
+        if (mPosition == mLength && !fillBuffer()) {
+            throw new EOFException("Touch stream truncated");
+        }
+        return mBuffer[mPosition++];
+    }
+
+    private long readUnsigned() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            final int b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Corrupt touch stream: malformed varint");
+    }
+
+    private long readSigned() throws IOException {
+        final long value = readUnsigned();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    @Override
+    public void close() throws IOException {
+        mIn.close();
+    }
+}
@@ -0,0 +1,124 @@
+package com.liuzhenlin.simrv;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Encodes {@link TouchRecord}s into a touch stream, as described there. The records are
+ * buffered and only written to the underlying stream as the buffer fills up, or when this
+ * gets flushed or closed.
+ */
+final class TouchStreamWriter implements Closeable {
+    private final OutputStream mOut;
+
+    private byte[] mBuffer = new byte[8192];
+    private int mLength;
+
+    private long mLastEventTime;
+    /** The fixed-point coordinates of each pointer index in the last sample written */
+    private int[] mLastXs = new int[2];
+    private int[] mLastYs = new int[2];
+
+    TouchStreamWriter(OutputStream out) throws IOException {
+        mOut = out;
+        for (byte b : TouchRecord.MAGIC) {
+            mBuffer[mLength++] = b;
+        }
+        mBuffer[mLength++] = TouchRecord.VERSION;
+    }
+
+    void write(TouchRecord record) throws IOException {
+        final int pointerCount = record.pointerCount;
+        final int sampleCount = record.sampleCount;
+        if (pointerCount < 1 || pointerCount > TouchRecord.MAX_POINTER_COUNT
+                || sampleCount < 1 || sampleCount > TouchRecord.MAX_SAMPLE_COUNT) {
+            throw new IllegalArgumentException("Invalid touch record of " + pointerCount
+                    + " pointers and " + sampleCount + " samples");
+        }
+        ensureRoom(getMaxEncodedSize(pointerCount, sampleCount));
+        if (mLastXs.length < pointerCount) {
+            final int[] lastXs = new int[pointerCount];
+            final int[] lastYs = new int[pointerCount];
+            System.arraycopy(mLastXs, 0, lastXs, 0, mLastXs.length);
+            System.arraycopy(mLastYs, 0, lastYs, 0, mLastYs.length);
+            mLastXs = lastXs;
+            mLastYs = lastYs;
+        }
+
+        final long eventTime = record.eventTime;
+        writeUnsigned(record.action);
+        writeSigned(eventTime - mLastEventTime);
+        writeSigned(eventTime - record.downTime);
+        mLastEventTime = eventTime;
+
+        writeUnsigned(pointerCount);
+        for (int i = 0; i < pointerCount; i++) {
+            writeUnsigned(record.pointerIds[i]);
+        }
+        writeUnsigned(sampleCount);
+        for (int i = 0, coordinate = 0; i < sampleCount; i++) {
+            writeSigned(eventTime - record.sampleTimes[i]);
+            for (int j = 0; j < pointerCount; j++, coordinate++) {
+                final int x = toFixedPoint(record.xs[coordinate]);
+                final int y = toFixedPoint(record.ys[coordinate]);
+                writeSigned(x - mLastXs[j]);
+                writeSigned(y - mLastYs[j]);
+                mLastXs[j] = x;
+                mLastYs[j] = y;
+            }
+        }
+    }
+
+    private static int toFixedPoint(float coordinate) {
+        final float value = coordinate * (1 << TouchRecord.COORDINATE_FRACTION_BITS);
+        return (int) (value > 0 ? value + 0.5f : value - 0.5f);
+    }
+
+    /** A varint of a long takes 10 bytes at most, and one of an int 5 bytes at most. */
+    private static int getMaxEncodedSize(int pointerCount, int sampleCount) {
+        return 5 + 10 + 10 + 5 + pointerCount * 5 + 5 + sampleCount * (10 + pointerCount * 2 * 5);
+    }
+
+    private void ensureRoom(int size) throws IOException {
+        if (mLength + size > mBuffer.length) {
+            flushBuffer();
+            if (size > mBuffer.length) {
+                mBuffer = new byte[size];
+            }
+        }
+    }
+
+    private void writeUnsigned(long value) {
+        while ((value & ~0x7FL) != 0) {
+            mBuffer[mLength++] = (byte) ((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        mBuffer[mLength++] = (byte) value;
+    }
+
+    private void writeSigned(long value) {
+        writeUnsigned((value << 1) ^ (value >> 63));
+    }
+
+    private void flushBuffer() throws IOException {
+        if (mLength > 0) {
+            mOut.write(mBuffer, 0, mLength);
+            mLength = 0;
+        }
+    }
+
+    void flush() throws IOException {
+        flushBuffer();
+        mOut.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try {
+            flushBuffer();
+        } finally {
+            mOut.close();
+        }
+    }
+}
@@ -4,13 +4,17 @@ import android.annotation.SuppressLint;
 import android.content.Context;
 import android.content.res.TypedArray;
 import android.graphics.Canvas;
+import android.graphics.Paint;
 import android.graphics.Rect;
+import android.graphics.drawable.ColorDrawable;
 import android.graphics.drawable.Drawable;
 import android.util.Log;
 import android.view.View;
 import android.widget.LinearLayout;
 
+import androidx.annotation.ColorInt;
 import androidx.annotation.NonNull;
+import androidx.annotation.Px;
 import androidx.recyclerview.widget.LinearLayoutManager;
 import androidx.recyclerview.widget.RecyclerView;
 
@@ -32,6 +36,25 @@ public class TopWrappedDividerItemDecoration extends RecyclerView.ItemDecoration
 
     private final Rect mBounds = new Rect();
 
+    /**
+     * The paint to draw the divider with if it is of a solid color set through
+     * {@link #setDivider(int, int)}, or null to draw the divider drawable for each item.
+     */
+    private Paint mSolidDividerPaint;
+
+    /** The thickness of the solid color divider */
+    private int mSolidDividerThickness;
+
+    /**
+     * The thickness of the divider along the current orientation, cached as the divider or
+     * the orientation is set, so that no drawable is queried for it per item or per frame
+     */
+    private int mDividerSize;
+
+    /** The reused endpoints of the lines drawn in one batch for the solid color dividers */
+    private float[] mSolidDividerLines = new float[0];
+    private int mSolidDividerLineCount;
+
     /**
      * Creates a divider {@link RecyclerView.ItemDecoration} that can be used with a
      * {@link LinearLayoutManager}.
@@ -70,6 +93,7 @@ public class TopWrappedDividerItemDecoration extends RecyclerView.ItemDecoration
                     "Invalid orientation. It should be either HORIZONTAL or VERTICAL");
         }
         mOrientation = orientation;
+        updateDividerSize();
     }
 
     /**
@@ -81,12 +105,86 @@ public class TopWrappedDividerItemDecoration extends RecyclerView.ItemDecoration
     }
 
     /**
-     * Sets the {@link Drawable} for this divider.
+     * Sets the {@link Drawable} for this divider. Its intrinsic size is read once here,
+     * so this should be called again if that changes.
      *
      * @param divider Drawable that should be used as a divider.
      */
     public void setDivider(@NonNull Drawable divider) {
         mDivider = divider;
+        mSolidDividerPaint = null;
+        updateDividerSize();
+    }
+
+    /**
+     * Sets a divider of a solid color, all of which are drawn in a single batch per frame
+     * instead of one drawable draw per item.
+     *
+     * @param color     the color of the divider
+     * @param thickness the thickness of the divider in pixels
+     * @throws IllegalArgumentException if a negative 'thickness' is passed in
+     */
+    public void setDivider(@ColorInt int color, @Px int thickness) {
+        if (thickness < 0) {
+            throw new IllegalArgumentException("Divider thickness cannot be negative: " + thickness);
+        }
+        mDivider = new ColorDrawable(color);
+        mSolidDividerPaint = new Paint();
+        mSolidDividerPaint.setColor(color);
+        mSolidDividerPaint.setStrokeWidth(thickness);
+        mSolidDividerPaint.setStrokeCap(Paint.Cap.BUTT);
+        mSolidDividerThickness = thickness;
+        updateDividerSize();
+    }
+
+    private void updateDividerSize() {
+        if (mSolidDividerPaint != null) {
+            mDividerSize = mSolidDividerThickness;
+        } else if (mDivider == null) {
+            mDividerSize = 0;
+        } else {
+            mDividerSize = mOrientation == VERTICAL
+                    ? mDivider.getIntrinsicHeight() : mDivider.getIntrinsicWidth();
+        }
+    }
+
+    private void drawDivider(Canvas canvas, int left, int top, int right, int bottom) {
+        if (mSolidDividerPaint == null) {
+            mDivider.setBounds(left, top, right, bottom);
+            mDivider.draw(canvas);
+            return;
+        }
+        // Collects the divider as a line along its center, to be drawn along with the others.
+        final int index = mSolidDividerLineCount << 2;
+        if (index == mSolidDividerLines.length) {
+            final float[] lines = new float[Math.max(32, index << 1)];
+            System.arraycopy(mSolidDividerLines, 0, lines, 0, index);
+            mSolidDividerLines = lines;
+        }
+        final float[] lines = mSolidDividerLines;
+        if (mOrientation == VERTICAL) {
+            final float centerY = (top + bottom) / 2f;
+            lines[index] = left;
+            lines[index + 1] = centerY;
+            lines[index + 2] = right;
+            lines[index + 3] = centerY;
+        } else {
+            final float centerX = (left + right) / 2f;
+            lines[index] = centerX;
+            lines[index + 1] = top;
+            lines[index + 2] = centerX;
+            lines[index + 3] = bottom;
+        }
+        mSolidDividerLineCount++;
+    }
+
+    private void flushSolidDividers(Canvas canvas) {
+        // A stroke width of 0 would draw hairlines rather than nothing.
+        if (mSolidDividerLineCount > 0 && mSolidDividerThickness > 0) {
+            canvas.drawLines(mSolidDividerLines, 0, mSolidDividerLineCount << 2,
+                    mSolidDividerPaint);
+        }
+        mSolidDividerLineCount = 0;
     }
 
     @Override
@@ -113,21 +211,21 @@ public class TopWrappedDividerItemDecoration extends RecyclerView.ItemDecoration
             right = parent.getWidth();
         }
 
+        final int dividerHeight = mDividerSize;
         final int childCount = parent.getChildCount();
         for (int i = 0; i < childCount; i++) {
             View child = parent.getChildAt(i);
             parent.getDecoratedBoundsWithMargins(child, mBounds);
             final int bottom = mBounds.bottom + Utils.roundFloat(child.getTranslationY());
-            final int top = bottom - mDivider.getIntrinsicHeight();
-            mDivider.setBounds(left, top, right, bottom);
-            mDivider.draw(canvas);
+            final int top = bottom - dividerHeight;
+            drawDivider(canvas, left, top, right, bottom);
             // Draw the divider for RecyclerView's top edge
             if (i == 0) {
-                mDivider.setBounds(left, parent.getPaddingTop(), right,
-                        parent.getPaddingTop() + mDivider.getIntrinsicHeight());
-                mDivider.draw(canvas);
+                drawDivider(canvas, left, parent.getPaddingTop(), right,
+                        parent.getPaddingTop() + dividerHeight);
             }
         }
+        flushSolidDividers(canvas);
         canvas.restore();
     }
 
@@ -144,21 +242,21 @@ public class TopWrappedDividerItemDecoration extends RecyclerView.ItemDecoration
             bottom = parent.getHeight();
         }
 
+        final int dividerWidth = mDividerSize;
         final int childCount = parent.getChildCount();
         for (int i = 0; i < childCount; i++) {
             View child = parent.getChildAt(i);
             parent.getDecoratedBoundsWithMargins(child, mBounds);
             final int right = mBounds.right + Utils.roundFloat(child.getTranslationX());
-            final int left = right - mDivider.getIntrinsicWidth();
-            mDivider.setBounds(left, top, right, bottom);
-            mDivider.draw(canvas);
+            final int left = right - dividerWidth;
+            drawDivider(canvas, left, top, right, bottom);
             // Draw the divider for RecyclerView's horizontal start edge
             if (i == 0) {
-                mDivider.setBounds(parent.getPaddingLeft(), top,
-                        parent.getPaddingLeft() + mDivider.getIntrinsicWidth(), bottom);
-                mDivider.draw(canvas);
+                drawDivider(canvas, parent.getPaddingLeft(), top,
+                        parent.getPaddingLeft() + dividerWidth, bottom);
             }
         }
+        flushSolidDividers(canvas);
         canvas.restore();
     }
 
@@ -170,20 +268,17 @@ public class TopWrappedDividerItemDecoration extends RecyclerView.ItemDecoration
             outRect.set(0, 0, 0, 0);
             return;
         }
+        // Same as parent.getChildAdapterPosition(view) == 0, without looking up the view holder
+        // of the child through the parent, and only resolving the adapter position of the child
+        // at the top, as resolving it goes through the pending adapter updates.
+        final RecyclerView.LayoutParams lp = (RecyclerView.LayoutParams) view.getLayoutParams();
+        final boolean first = lp.getViewLayoutPosition() == 0
+                && lp.getAbsoluteAdapterPosition() == 0;
+        final int dividerSize = mDividerSize;
         if (mOrientation == VERTICAL) {
-            final int dividerHeight = mDivider.getIntrinsicHeight();
-            if (parent.getChildAdapterPosition(view) == 0) {
-                outRect.set(0, dividerHeight, 0, dividerHeight);
-            } else {
-                outRect.set(0, 0, 0, dividerHeight);
-            }
+            outRect.set(0, first ? dividerSize : 0, 0, dividerSize);
         } else {
-            final int dividerWidth = mDivider.getIntrinsicWidth();
-            if (parent.getChildAdapterPosition(view) == 0) {
-                outRect.set(dividerWidth, 0, dividerWidth, 0);
-            } else {
-                outRect.set(0, 0, dividerWidth, 0);
-            }
+            outRect.set(first ? dividerSize : 0, 0, dividerSize, 0);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,94 @@
+package com.liuzhenlin.simrv;
+
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Tests of the writing of {@link BackgroundOutputStream} to its underlying stream.
+ */
+public class BackgroundOutputStreamTest {
+
+    private static byte[] bytes(int length) {
+        final byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = (byte) (i * 31 + 7);
+        }
+        return bytes;
+    }
+
+    @Test
+    public void flush_writesEverythingInOrder() throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final BackgroundOutputStream stream = new BackgroundOutputStream(out, "test");
+        final byte[] bytes = bytes(BackgroundOutputStream.CHUNK_SIZE * 3 + 100);
+        stream.write(bytes, 0, 10);
+        stream.write(bytes[10]);
+        stream.write(bytes, 11, bytes.length - 11);
+        stream.flush();
+        assertArrayEquals(bytes, out.toByteArray());
+
+        stream.write(bytes, 0, 5);
+        stream.close();
+        assertEquals(bytes.length + 5, out.size());
+    }
+
+    @Test(timeout = 10_000)
+    public void write_doesNotWaitForTheUnderlyingStream() throws Exception {
+        final CountDownLatch unblocked = new CountDownLatch(1);
+        final ByteArrayOutputStream out = new ByteArrayOutputStream() {
+            @Override
+            public synchronized void write(byte[] b, int off, int len) {
+                try {
+                    unblocked.await();
+                } catch (InterruptedException e) {
+                    throw new AssertionError(e);
+                }
+                super.write(b, off, len);
+            }
+        };
+        final BackgroundOutputStream stream = new BackgroundOutputStream(out, "test");
+        final byte[] bytes = bytes(BackgroundOutputStream.CHUNK_SIZE * 4);
+        // Would never return if the chunks were written to the blocked stream on this thread.
+        stream.write(bytes, 0, bytes.length);
+
+        unblocked.countDown();
+        stream.close();
+        assertArrayEquals(bytes, out.toByteArray());
+    }
+
+    @Test
+    public void failure_isThrownOnTheNextFlush() throws IOException {
+        final OutputStream out = new OutputStream() {
+            @Override
+            public void write(int b) throws IOException {
+                throw new IOException("No space left");
+            }
+        };
+        final BackgroundOutputStream stream = new BackgroundOutputStream(out, "test");
+        stream.write(bytes(BackgroundOutputStream.CHUNK_SIZE + 1), 0,
+                BackgroundOutputStream.CHUNK_SIZE + 1);
+        try {
+            stream.flush();
+            fail();
+        } catch (IOException e) {
+            assertEquals("No space left", e.getMessage());
+        }
+        try {
+            stream.write(0);
+            stream.write(bytes(BackgroundOutputStream.CHUNK_SIZE), 0,
+                    BackgroundOutputStream.CHUNK_SIZE);
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage().contains("No space"));
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.liuzhenlin.simrv;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Tests of the caching of the menu widths by {@link ItemSwipeState}, through a menu free of
+ * any framework class.
+ */
+public class ItemSwipeStateTest {
+    private ItemSwipeState mState;
+    private FakeMenuItems mMenuItems;
+
+    private static final class FakeMenuItems implements ItemSwipeState.MenuItems {
+        final int[] widths;
+        final boolean[] visibilities;
+        int widthReadCount;
+
+        FakeMenuItems(int... widths) {
+            this.widths = widths;
+            visibilities = new boolean[widths.length];
+            Arrays.fill(visibilities, true);
+        }
+
+        @Override
+        public int getMenuItemCount() {
+            return widths.length;
+        }
+
+        @Override
+        public boolean isMenuItemVisible(int index) {
+            return visibilities[index];
+        }
+
+        @Override
+        public int getMenuItemWidth(int index) {
+            widthReadCount++;
+            return widths[index];
+        }
+    }
+
+    @Before
+    public void setUp() {
+        // The item view is not needed for the menu items to be resolved.
+        mState = new ItemSwipeState(null);
+        mMenuItems = new FakeMenuItems(100, 100, 80);
+    }
+
+    @Test
+    public void resolve_measuresTheVisibleMenuItems() {
+        assertEquals(280, mState.resolveMenuItems(mMenuItems));
+        assertEquals(3, mState.menuItemCount);
+        assertEquals(0f, mState.menuItemParallaxFractions[0], 0f);
+        assertEquals(100f / 280f, mState.menuItemParallaxFractions[1], 1e-6f);
+        assertEquals(200f / 280f, mState.menuItemParallaxFractions[2], 1e-6f);
+    }
+
+    @Test
+    public void resolve_reusesTheCachedWidths() {
+        mState.resolveMenuItems(mMenuItems);
+        final int readCount = mMenuItems.widthReadCount;
+        // A size change comes with a layout, without which the widths are not read again.
+        mMenuItems.widths[0] = 50;
+        assertEquals(280, mState.resolveMenuItems(mMenuItems));
+        assertEquals(readCount, mMenuItems.widthReadCount);
+
+        mState.invalidateMenuGeometry();
+        assertEquals(230, mState.resolveMenuItems(mMenuItems));
+    }
+
+    @Test
+    public void resolve_remeasuresOnVisibilityToggle() {
+        mState.resolveMenuItems(mMenuItems);
+        // Made invisible, which only redraws the menu without laying it out again
+        mMenuItems.visibilities[1] = false;
+        assertEquals(180, mState.resolveMenuItems(mMenuItems));
+        assertEquals(0, mState.menuItemWidths[1]);
+        assertEquals(100f / 180f, mState.menuItemParallaxFractions[2], 1e-6f);
+
+        mMenuItems.visibilities[1] = true;
+        assertEquals(280, mState.resolveMenuItems(mMenuItems));
+        assertEquals(200f / 280f, mState.menuItemParallaxFractions[2], 1e-6f);
+    }
+}
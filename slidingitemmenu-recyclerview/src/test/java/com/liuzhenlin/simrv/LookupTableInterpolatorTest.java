@@ -0,0 +1,82 @@
+package com.liuzhenlin.simrv;
+
+import android.view.animation.Interpolator;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Accuracy tests of {@link LookupTableInterpolator} against the analytic curves it samples.
+ */
+public class LookupTableInterpolatorTest {
+    private static final int DENSE_SAMPLE_COUNT = 100_000;
+
+    private static final Interpolator VISCOUS_FLUID = new ViscousFluidInterpolator(6.66f);
+
+    /** Same curve as {@code new OvershootInterpolator(1.0f)}, which is unavailable on the JVM */
+    private static final Interpolator OVERSHOOT = input -> {
+        final float tension = 1.0f;
+        input -= 1.0f;
+        return input * input * ((tension + 1) * input + tension) + 1.0f;
+    };
+
+    private static float denseMaxError(Interpolator lut, Interpolator source) {
+        float maxError = 0;
+        for (int i = 0; i <= DENSE_SAMPLE_COUNT; i++) {
+            final float input = (float) i / DENSE_SAMPLE_COUNT;
+            maxError = Math.max(maxError,
+                    Math.abs(lut.getInterpolation(input) - source.getInterpolation(input)));
+        }
+        return maxError;
+    }
+
+    private static void assertAccurate(Interpolator source, int resolution, int interpolation,
+                                       float bound) {
+        final LookupTableInterpolator lut =
+                new LookupTableInterpolator(source, resolution, interpolation);
+        final float denseError = denseMaxError(lut, source);
+        assertTrue("error " + denseError + " exceeds " + bound, denseError < bound);
+        // The error stated by the interpolator must not underestimate the real one by much.
+        assertTrue("stated error " + lut.getMaxError() + " is far below " + denseError,
+                denseError <= lut.getMaxError() * 1.1f + 1e-6f);
+    }
+
+    @Test
+    public void defaultConfiguration_isWithinStatedBound() {
+        assertAccurate(VISCOUS_FLUID, LookupTableInterpolator.DEFAULT_RESOLUTION,
+                LookupTableInterpolator.INTERPOLATION_CUBIC, 1e-5f);
+        assertAccurate(OVERSHOOT, LookupTableInterpolator.DEFAULT_RESOLUTION,
+                LookupTableInterpolator.INTERPOLATION_CUBIC, 1e-5f);
+    }
+
+    @Test
+    public void linearInterpolation_isAccurate() {
+        assertAccurate(VISCOUS_FLUID, LookupTableInterpolator.DEFAULT_RESOLUTION,
+                LookupTableInterpolator.INTERPOLATION_LINEAR, 1e-4f);
+        assertAccurate(OVERSHOOT, LookupTableInterpolator.DEFAULT_RESOLUTION,
+                LookupTableInterpolator.INTERPOLATION_LINEAR, 1e-4f);
+    }
+
+    @Test
+    public void lowResolution_isStillBounded() {
+        assertAccurate(VISCOUS_FLUID, 64, LookupTableInterpolator.INTERPOLATION_CUBIC, 1e-3f);
+        assertAccurate(OVERSHOOT, 2, LookupTableInterpolator.INTERPOLATION_CUBIC, 1e-1f);
+    }
+
+    @Test
+    public void endpoints_matchSource() {
+        final LookupTableInterpolator lut = new LookupTableInterpolator(VISCOUS_FLUID);
+        assertEquals(VISCOUS_FLUID.getInterpolation(0), lut.getInterpolation(0), 0);
+        assertEquals(VISCOUS_FLUID.getInterpolation(1), lut.getInterpolation(1), 0);
+        // Out-of-range inputs are clamped.
+        assertEquals(lut.getInterpolation(0), lut.getInterpolation(-1), 0);
+        assertEquals(lut.getInterpolation(1), lut.getInterpolation(2), 0);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void nonPositiveResolution_throws() {
+        new LookupTableInterpolator(VISCOUS_FLUID, 0, LookupTableInterpolator.INTERPOLATION_LINEAR);
+    }
+}
@@ -0,0 +1,293 @@
+package com.liuzhenlin.simrv;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the remapping of the open positions of {@link OpenItemIndex} on adapter changes.
+ */
+public class OpenItemIndexTest {
+    private OpenItemIndex mIndex;
+
+    @Before
+    public void setUp() {
+        mIndex = new OpenItemIndex();
+    }
+
+    private void addAll(int... positions) {
+        for (int position : positions) {
+            mIndex.add(position, OpenItemIndex.NO_ID);
+        }
+    }
+
+    private int[] positions() {
+        final int[] positions = new int[mIndex.size()];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = mIndex.positionAt(i);
+        }
+        return positions;
+    }
+
+    @Test
+    public void add_keepsThePositionsSorted() {
+        addAll(9, 2, 5, 2, 0, 7);
+        assertArrayEquals(new int[]{0, 2, 5, 7, 9}, positions());
+        assertTrue(mIndex.contains(5));
+        assertFalse(mIndex.contains(6));
+    }
+
+    @Test
+    public void remove() {
+        addAll(1, 3, 5);
+        assertTrue(mIndex.remove(3));
+        assertFalse(mIndex.remove(3));
+        assertArrayEquals(new int[]{1, 5}, positions());
+    }
+
+    @Test
+    public void insert_shiftsThePositionsFromTheStart() {
+        addAll(1, 3, 5);
+        mIndex.onItemRangeInserted(3, 2);
+        assertArrayEquals(new int[]{1, 5, 7}, positions());
+    }
+
+    @Test
+    public void remove_dropsTheRangeAndShiftsThePositionsAfterIt() {
+        addAll(1, 3, 4, 6, 9);
+        mIndex.onItemRangeRemoved(3, 3);
+        assertArrayEquals(new int[]{1, 3, 6}, positions());
+    }
+
+    @Test
+    public void move_down() {
+        addAll(0, 1, 2, 4, 6);
+        // 1 -> 4: 2, 3, 4 -> 1, 2, 3
+        mIndex.onItemRangeMoved(1, 4, 1);
+        assertArrayEquals(new int[]{0, 1, 3, 4, 6}, positions());
+    }
+
+    @Test
+    public void move_up() {
+        mIndex.add(1, 10);
+        mIndex.add(4, 40);
+        mIndex.add(5, 50);
+        // 4 -> 1: 1, 2, 3 -> 2, 3, 4
+        mIndex.onItemRangeMoved(4, 1, 1);
+        assertArrayEquals(new int[]{1, 2, 5}, positions());
+        assertEquals(40, mIndex.idAt(0));
+        assertEquals(10, mIndex.idAt(1));
+        assertEquals(50, mIndex.idAt(2));
+    }
+
+    @Test
+    public void changes_matchAListOfItems() {
+        final Random random = new Random(42);
+        final List<Integer> items = new ArrayList<>();
+        int nextItem = 0;
+        for (; nextItem < 200; nextItem++) {
+            items.add(nextItem);
+        }
+        // Opens every item divisible by 3, which the index has to keep track of.
+        for (int i = 0; i < items.size(); i++) {
+            if (items.get(i) % 3 == 0) {
+                mIndex.add(i, OpenItemIndex.NO_ID);
+            }
+        }
+        for (int round = 0; round < 1000; round++) {
+            switch (random.nextInt(3)) {
+                case 0: {
+                    final int start = random.nextInt(items.size() + 1);
+                    final int count = 1 + random.nextInt(5);
+                    for (int i = 0; i < count; i++) {
+                        // Inserted items are closed.
+                        items.add(start + i, nextItem++ * 3 + 1);
+                    }
+                    mIndex.onItemRangeInserted(start, count);
+                    break;
+                }
+                case 1: {
+                    if (items.size() < 10) continue;
+                    final int start = random.nextInt(items.size() - 5);
+                    final int count = 1 + random.nextInt(5);
+                    items.subList(start, start + count).clear();
+                    mIndex.onItemRangeRemoved(start, count);
+                    break;
+                }
+                case 2: {
+                    final int from = random.nextInt(items.size());
+                    final int to = random.nextInt(items.size());
+                    items.add(to, items.remove(from));
+                    mIndex.onItemRangeMoved(from, to, 1);
+                    break;
+                }
+            }
+            final List<Integer> expected = new ArrayList<>();
+            for (int i = 0; i < items.size(); i++) {
+                if (items.get(i) % 3 == 0) {
+                    expected.add(i);
+                }
+            }
+            final int[] actual = positions();
+            assertEquals("Round " + round, expected.size(), actual.length);
+            for (int i = 0; i < actual.length; i++) {
+                assertEquals("Round " + round, (int) expected.get(i), actual[i]);
+            }
+        }
+    }
+
+    @Test
+    public void truncate() {
+        addAll(1, 4, 8);
+        mIndex.truncate(5);
+        assertArrayEquals(new int[]{1, 4}, positions());
+    }
+
+    @Test
+    public void retain() {
+        mIndex.add(1, 10);
+        mIndex.add(4, 40);
+        mIndex.retain(4);
+        assertArrayEquals(new int[]{4}, positions());
+        assertEquals(40, mIndex.idAt(0));
+        mIndex.retain(5);
+        assertEquals(0, mIndex.size());
+    }
+
+    @Test
+    public void remapByIds_findsTheItemsAgain() {
+        mIndex.add(0, 100);
+        mIndex.add(2, 102);
+        mIndex.add(3, 103);
+        final List<Long> ids = new ArrayList<>();
+        for (long id = 100; id < 110; id++) {
+            ids.add(id);
+        }
+        // The item of id 103 has been removed and the others reversed.
+        ids.remove(Long.valueOf(103));
+        Collections.reverse(ids);
+        mIndex.remapByIds(new OpenItemIndex.ItemIds() {
+            @Override
+            public int getItemCount() {
+                return ids.size();
+            }
+
+            @Override
+            public long getItemId(int position) {
+                return ids.get(position);
+            }
+        });
+        assertArrayEquals(new int[]{6, 8}, positions());
+        assertEquals(102, mIndex.idAt(0));
+        assertEquals(100, mIndex.idAt(1));
+    }
+
+    @Test
+    public void encodePositions_roundTrip() {
+        addAll(0, 1, 2, 7, 200, 201, 100_000);
+        mIndex.add(9, 90);
+        final byte[] bytes = mIndex.encodePositions();
+        final OpenItemIndex index = new OpenItemIndex();
+        index.decodePositions(bytes);
+        mIndex = index;
+        assertArrayEquals(new int[]{0, 1, 2, 7, 9, 200, 201, 100_000}, positions());
+        assertEquals(OpenItemIndex.NO_ID, mIndex.idAt(4));
+    }
+
+    @Test
+    public void encodePositions_isCompactForRuns() {
+        for (int position = 0; position < 500_000; position++) {
+            mIndex.add(position, OpenItemIndex.NO_ID);
+        }
+        assertEquals(4, mIndex.encodePositions().length);
+    }
+
+    @Test
+    public void encodePositions_empty() {
+        assertEquals(0, mIndex.encodePositions().length);
+        addAll(3);
+        mIndex.decodePositions(new byte[0]);
+        assertEquals(0, mIndex.size());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodePositions_rejectsTruncatedRuns() {
+        addAll(5, 6);
+        final byte[] bytes = mIndex.encodePositions();
+        mIndex.decodePositions(Arrays.copyOf(bytes, bytes.length - 1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodePositions_rejectsOverlongVarints() {
+        mIndex.decodePositions(new byte[]{(byte) 0x80, (byte) 0x80, (byte) 0x80, (byte) 0x80,
+                (byte) 0x80, 0x01, 0x01});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodePositions_rejectsEmptyRuns() {
+        mIndex.decodePositions(new byte[]{0x02, 0x00});
+    }
+
+    private static OpenItemIndex.ItemIds itemIds(final long... ids) {
+        return new OpenItemIndex.ItemIds() {
+            @Override
+            public int getItemCount() {
+                return ids.length;
+            }
+
+            @Override
+            public long getItemId(int position) {
+                return ids[position];
+            }
+        };
+    }
+
+    @Test
+    public void decodePositions_withIds_thenRemapByIds() {
+        mIndex.add(1, 11);
+        mIndex.add(3, 13);
+        final byte[] bytes = mIndex.encodePositions();
+        final long[] ids = mIndex.getIds();
+        mIndex = new OpenItemIndex();
+        mIndex.decodePositions(bytes, ids);
+        // The data is loaded again with an item inserted at the start.
+        mIndex.remapByIds(itemIds(20, 10, 11, 12, 13));
+        assertArrayEquals(new int[]{2, 4}, positions());
+        assertEquals(11, mIndex.idAt(0));
+        assertEquals(13, mIndex.idAt(1));
+    }
+
+    @Test
+    public void decodePositions_withoutIds_thenRemapByIds_keepsThePositions() {
+        addAll(1, 3, 7);
+        mIndex.decodePositions(mIndex.encodePositions());
+        mIndex.remapByIds(itemIds(10, 11, 12, 13, 14));
+        assertArrayEquals(new int[]{1, 3}, positions());
+    }
+
+    @Test
+    public void remapByIds_keepsTheItemsWithoutIdsByPosition() {
+        mIndex.add(0, 100);
+        mIndex.add(2, OpenItemIndex.NO_ID);
+        mIndex.remapByIds(itemIds(105, 104, 103, 100));
+        assertArrayEquals(new int[]{2, 3}, positions());
+        assertEquals(OpenItemIndex.NO_ID, mIndex.idAt(0));
+        assertEquals(100, mIndex.idAt(1));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void decodePositions_rejectsMismatchedIds() {
+        addAll(1, 3);
+        mIndex.decodePositions(mIndex.encodePositions(), new long[]{1});
+    }
+}
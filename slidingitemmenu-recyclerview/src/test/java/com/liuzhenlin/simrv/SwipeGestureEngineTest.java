@@ -0,0 +1,154 @@
+package com.liuzhenlin.simrv;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the decisions {@link SwipeGestureEngine} makes on synthetic touch event streams.
+ */
+public class SwipeGestureEngineTest {
+    private static final int TOUCH_SLOP = 16;
+    private static final float MIN_FLING_VELOCITY = 400f;
+    private static final int MENU_WIDTH = 300;
+
+    private SwipeGestureEngine mEngine;
+
+    @Before
+    public void setUp() {
+        mEngine = new SwipeGestureEngine(TOUCH_SLOP, MIN_FLING_VELOCITY);
+    }
+
+    private void move(long time, float x, float y) {
+        mEngine.onMove(x, y);
+        mEngine.addSample(time, x);
+    }
+
+    @Test
+    public void onDown_roundsTheDownPoint() {
+        mEngine.onDown(0, 10.5f, 20.4f);
+        assertEquals(11, mEngine.getDownX());
+        assertEquals(20, mEngine.getDownY());
+    }
+
+    @Test
+    public void drag_startsOnlyOverTheSlopTowardsTheStart() {
+        mEngine.onDown(0, 500f, 100f);
+        move(8, 500f - TOUCH_SLOP, 100f);
+        assertFalse(mEngine.tryStartDrag(false, false));
+        // Towards the end, which does not open a closed item view
+        move(16, 500f + TOUCH_SLOP + 1, 100f);
+        assertFalse(mEngine.tryStartDrag(false, false));
+        move(24, 500f - TOUCH_SLOP - 1, 100f);
+        assertTrue(mEngine.tryStartDrag(false, false));
+        assertTrue(mEngine.isDragging());
+    }
+
+    @Test
+    public void drag_startsTowardsTheEndInRtlLayout() {
+        mEngine.onDown(0, 500f, 100f);
+        move(8, 500f - TOUCH_SLOP - 1, 100f);
+        assertFalse(mEngine.tryStartDrag(true, false));
+        move(16, 500f + TOUCH_SLOP + 1, 100f);
+        assertTrue(mEngine.tryStartDrag(true, false));
+    }
+
+    @Test
+    public void drag_startsEitherWayWithItemsOpen() {
+        mEngine.onDown(0, 500f, 100f);
+        move(8, 500f + TOUCH_SLOP + 1, 100f);
+        assertTrue(mEngine.tryStartDrag(false, true));
+    }
+
+    @Test
+    public void drag_doesNotStartOverTheVerticalSlop() {
+        mEngine.onDown(0, 500f, 100f);
+        move(8, 400f, 100f + TOUCH_SLOP + 1);
+        assertFalse(mEngine.tryStartDrag(false, false));
+    }
+
+    @Test
+    public void dragDelta_followsTheFingerWithinTheMenu() {
+        mEngine.onDown(0, 500f, 100f);
+        move(8, 480f, 100f);
+        assertTrue(mEngine.tryStartDrag(false, false));
+        move(16, 450f, 100f);
+        assertEquals(-30f, mEngine.computeDragDelta(0f, MENU_WIDTH, false, 0), 0f);
+        // The next delta is relative to the point last followed.
+        move(24, 440f, 100f);
+        assertEquals(-10f, mEngine.computeDragDelta(-30f, MENU_WIDTH, false, 0), 0f);
+    }
+
+    @Test
+    public void dragDelta_isResistedOverTheMenuWidth() {
+        assertEquals(-10f,
+                SwipeGestureEngine.resistDragDelta(-30f, -MENU_WIDTH, MENU_WIDTH, false), 1e-4f);
+        assertEquals(10f,
+                SwipeGestureEngine.resistDragDelta(30f, MENU_WIDTH, MENU_WIDTH, true), 1e-4f);
+    }
+
+    @Test
+    public void dragDelta_stopsAtTheOriginalPosition() {
+        assertEquals(20f, SwipeGestureEngine.resistDragDelta(50f, -20f, MENU_WIDTH, false), 0f);
+        assertEquals(-20f, SwipeGestureEngine.resistDragDelta(-50f, 20f, MENU_WIDTH, true), 0f);
+    }
+
+    @Test
+    public void release_atTheEnds_needsNoScroll() {
+        assertEquals(SwipeGestureEngine.RELEASE_NONE,
+                mEngine.decideRelease(0f, MENU_WIDTH, false, -1000f));
+        assertEquals(SwipeGestureEngine.RELEASE_OPENED,
+                mEngine.decideRelease(-MENU_WIDTH, MENU_WIDTH, false, 1000f));
+        assertEquals(SwipeGestureEngine.RELEASE_OPENED,
+                mEngine.decideRelease(MENU_WIDTH, MENU_WIDTH, true, 1000f));
+    }
+
+    @Test
+    public void release_flingOverridesTheHalfWidth() {
+        assertEquals(SwipeGestureEngine.RELEASE_OPEN,
+                mEngine.decideRelease(-10f, MENU_WIDTH, false, -MIN_FLING_VELOCITY));
+        assertEquals(SwipeGestureEngine.RELEASE_CLOSE,
+                mEngine.decideRelease(-290f, MENU_WIDTH, false, MIN_FLING_VELOCITY));
+        assertEquals(SwipeGestureEngine.RELEASE_OPEN,
+                mEngine.decideRelease(10f, MENU_WIDTH, true, MIN_FLING_VELOCITY));
+    }
+
+    @Test
+    public void release_withoutFling_goesToTheNearerEnd() {
+        final float slow = MIN_FLING_VELOCITY - 1;
+        assertEquals(SwipeGestureEngine.RELEASE_CLOSE,
+                mEngine.decideRelease(-149f, MENU_WIDTH, false, -slow));
+        assertEquals(SwipeGestureEngine.RELEASE_OPEN,
+                mEngine.decideRelease(-150f, MENU_WIDTH, false, slow));
+    }
+
+    @Test
+    public void downWithItemsOpen() {
+        mEngine.onDown(0, 0f, 0f);
+        assertEquals(SwipeGestureEngine.DOWN_INTERCEPT,
+                mEngine.onDownWithItemsOpen(false, false, false));
+        assertFalse(mEngine.hasItemFullyOpenOnDown());
+
+        mEngine.onDown(0, 0f, 0f);
+        assertEquals(SwipeGestureEngine.DOWN_RELEASE_AND_INTERCEPT,
+                mEngine.onDownWithItemsOpen(true, false, false));
+        assertTrue(mEngine.hasItemFullyOpenOnDown());
+        assertFalse(mEngine.isDownOnFullyOpenItemMenu());
+
+        mEngine.onDown(0, 0f, 0f);
+        assertEquals(SwipeGestureEngine.DOWN_INTERCEPT,
+                mEngine.onDownWithItemsOpen(true, true, false));
+
+        mEngine.onDown(0, 0f, 0f);
+        assertEquals(SwipeGestureEngine.DOWN_DELIVER_TO_MENU,
+                mEngine.onDownWithItemsOpen(true, true, true));
+        assertTrue(mEngine.isDownOnFullyOpenItemMenu());
+
+        mEngine.onDown(0, 0f, 0f);
+        assertFalse(mEngine.hasItemFullyOpenOnDown());
+        assertFalse(mEngine.isDownOnFullyOpenItemMenu());
+    }
+}
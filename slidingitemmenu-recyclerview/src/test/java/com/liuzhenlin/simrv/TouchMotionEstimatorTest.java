@@ -0,0 +1,103 @@
+package com.liuzhenlin.simrv;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the velocity estimation and the position prediction of {@link TouchMotionEstimator}.
+ */
+public class TouchMotionEstimatorTest {
+    private TouchMotionEstimator mEstimator;
+
+    @Before
+    public void setUp() {
+        mEstimator = new TouchMotionEstimator();
+    }
+
+    /** Adds samples every 'interval' milliseconds of a pointer moving at 'velocity' px/s. */
+    private void addUniformMotion(long startTime, float startX, float velocity, int interval,
+                                  int count) {
+        for (int i = 0; i < count; i++) {
+            final long time = startTime + (long) i * interval;
+            mEstimator.addSample(time, startX + velocity * (time - startTime) / 1000f);
+        }
+    }
+
+    @Test
+    public void velocity_isZeroWithFewerThanTwoSamples() {
+        assertEquals(0f, mEstimator.getVelocity(), 0f);
+        mEstimator.addSample(100, 50f);
+        assertEquals(0f, mEstimator.getVelocity(), 0f);
+    }
+
+    @Test
+    public void velocity_ofUniformMotion_isExact() {
+        addUniformMotion(1000, 500f, -1200f, 4, 12);
+        assertEquals(-1200f, mEstimator.getVelocity(), 1f);
+    }
+
+    @Test
+    public void velocity_ignoresSamplesOutsideWindow() {
+        addUniformMotion(1000, 0f, 3000f, 8, 10);
+        // The pointer then rests for longer than the window.
+        final long restTime = 1000 + 9 * 8 + TouchMotionEstimator.WINDOW_MILLIS + 1;
+        final float restX = mEstimator.getLatestPosition();
+        mEstimator.addSample(restTime, restX);
+        mEstimator.addSample(restTime + 8, restX);
+        assertEquals(0f, mEstimator.getVelocity(), 0f);
+    }
+
+    @Test
+    public void velocity_smoothsJitter() {
+        for (int i = 0; i < 12; i++) {
+            final float jitter = i % 2 == 0 ? 1.5f : -1.5f;
+            mEstimator.addSample(1000 + i * 4L, 2f * i * 4 + jitter);
+        }
+        // 2 px/ms, whereas the last two samples alone would give 2 px/ms + 3 px / 4 ms.
+        assertEquals(2000f, mEstimator.getVelocity(), 200f);
+    }
+
+    @Test
+    public void samples_wrapAroundRingBuffer() {
+        addUniformMotion(0, 0f, 100f, 1, 200);
+        addUniformMotion(1000, 0f, 800f, 2, 10);
+        assertEquals(800f, mEstimator.getVelocity(), 1f);
+        assertEquals(800f * 18 / 1000f, mEstimator.getLatestPosition(), 1e-3f);
+    }
+
+    @Test
+    public void outOfOrderSamples_areIgnored() {
+        addUniformMotion(1000, 0f, 1000f, 4, 5);
+        mEstimator.addSample(990, 1000f);
+        assertEquals(5, mEstimator.getSampleCount());
+        assertEquals(1000f, mEstimator.getVelocity(), 1f);
+    }
+
+    @Test
+    public void prediction_extrapolatesUniformMotion() {
+        addUniformMotion(1000, 100f, 2000f, 4, 10);
+        final float latest = mEstimator.getLatestPosition();
+        assertEquals(latest + 2000f * 8 / 1000f, mEstimator.predictPosition(8), 0.1f);
+    }
+
+    @Test
+    public void prediction_neverExceedsRecentTravel() {
+        // Two samples 1 ms apart give a high velocity but only 2 px of travel.
+        mEstimator.addSample(1000, 0f);
+        mEstimator.addSample(1001, 2f);
+        final float predicted = mEstimator.predictPosition(16);
+        assertTrue("predicted " + predicted, predicted <= 4f);
+    }
+
+    @Test
+    public void clear_forgetsAllSamples() {
+        addUniformMotion(1000, 0f, 1000f, 4, 5);
+        mEstimator.clear();
+        assertEquals(0, mEstimator.getSampleCount());
+        assertEquals(0f, mEstimator.getVelocity(), 0f);
+        assertEquals(0f, mEstimator.predictPosition(16), 0f);
+    }
+}
@@ -0,0 +1,162 @@
+package com.liuzhenlin.simrv;
+
+import org.junit.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Tests of the encoding of touch streams by {@link TouchStreamWriter} and the decoding of them
+ * by {@link TouchStreamReader}.
+ */
+public class TouchStreamTest {
+    private static final int ACTION_DOWN = 0;
+    private static final int ACTION_MOVE = 2;
+    private static final int ACTION_POINTER_DOWN_1 = 5 | 1 << 8;
+
+    private static TouchRecord createRecord(int action, long downTime, long eventTime,
+                                            int[] pointerIds, int sampleCount, float x0) {
+        final TouchRecord record = new TouchRecord();
+        record.setSize(pointerIds.length, sampleCount);
+        record.action = action;
+        record.downTime = downTime;
+        record.eventTime = eventTime;
+        System.arraycopy(pointerIds, 0, record.pointerIds, 0, pointerIds.length);
+        for (int i = 0; i < sampleCount; i++) {
+            record.sampleTimes[i] = eventTime - (sampleCount - 1 - i) * 4L;
+            for (int j = 0; j < pointerIds.length; j++) {
+                record.setCoordinates(i, j, x0 - i * 7.25f + j * 300, 500.5f + j * 100 - i);
+            }
+        }
+        return record;
+    }
+
+    private static byte[] encode(TouchRecord... records) throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        final TouchStreamWriter writer = new TouchStreamWriter(out);
+        for (TouchRecord record : records) {
+            writer.write(record);
+        }
+        writer.close();
+        return out.toByteArray();
+    }
+
+    private static void assertRecordEquals(TouchRecord expected, TouchRecord actual) {
+        assertEquals(expected.action, actual.action);
+        assertEquals(expected.downTime, actual.downTime);
+        assertEquals(expected.eventTime, actual.eventTime);
+        assertEquals(expected.pointerCount, actual.pointerCount);
+        assertEquals(expected.sampleCount, actual.sampleCount);
+        assertArrayEquals(Arrays.copyOf(expected.pointerIds, expected.pointerCount),
+                Arrays.copyOf(actual.pointerIds, actual.pointerCount));
+        assertArrayEquals(Arrays.copyOf(expected.sampleTimes, expected.sampleCount),
+                Arrays.copyOf(actual.sampleTimes, actual.sampleCount));
+        for (int i = 0; i < expected.sampleCount; i++) {
+            for (int j = 0; j < expected.pointerCount; j++) {
+                assertEquals(expected.getX(i, j), actual.getX(i, j), 0f);
+                assertEquals(expected.getY(i, j), actual.getY(i, j), 0f);
+            }
+        }
+    }
+
+    @Test
+    public void roundTrip_preservesAllTheEvents() throws IOException {
+        final TouchRecord[] records = {
+                createRecord(ACTION_DOWN, 10_000, 10_000, new int[]{0}, 1, 900f),
+                createRecord(ACTION_MOVE, 10_000, 10_016, new int[]{0}, 4, 880f),
+                createRecord(ACTION_POINTER_DOWN_1, 10_000, 10_020, new int[]{0, 3}, 1, 850f),
+                createRecord(ACTION_MOVE, 10_000, 10_036, new int[]{0, 3}, 3, 820f),
+        };
+        final TouchStreamReader reader =
+                new TouchStreamReader(new ByteArrayInputStream(encode(records)));
+        final TouchRecord record = new TouchRecord();
+        for (TouchRecord expected : records) {
+            assertTrue(reader.read(record));
+            assertRecordEquals(expected, record);
+        }
+        assertFalse(reader.read(record));
+    }
+
+    @Test
+    public void coordinates_areRoundedTo256thsOfPixel() throws IOException {
+        final TouchRecord expected = createRecord(ACTION_DOWN, 0, 0, new int[]{0}, 1, 0f);
+        expected.setCoordinates(0, 0, 100.3f, -20.001f);
+        final TouchStreamReader reader =
+                new TouchStreamReader(new ByteArrayInputStream(encode(expected)));
+        final TouchRecord record = new TouchRecord();
+        assertTrue(reader.read(record));
+        assertEquals(100.3f, record.getX(0, 0), 0.5f / 256);
+        assertEquals(-20.001f, record.getY(0, 0), 0.5f / 256);
+    }
+
+    @Test
+    public void steadyMove_isEncodedCompactly() throws IOException {
+        final byte[] header = encode();
+        final byte[] stream =
+                encode(createRecord(ACTION_MOVE, 10_000, 10_016, new int[]{0}, 100, 900f));
+        // 100 samples of a pointer moving 7.25 px and 1 px per 4 ms
+        assertTrue("encoded in " + stream.length + " bytes",
+                stream.length - header.length <= 100 * 6 + 16);
+    }
+
+    @Test
+    public void read_refillsTheBufferWithinRecords() throws IOException {
+        final int count = 3000;
+        final TouchRecord[] records = new TouchRecord[count];
+        for (int i = 0; i < count; i++) {
+            records[i] = createRecord(ACTION_MOVE, 0, i * 16L, new int[]{0, 1}, 3, i);
+        }
+        // Hands out a single byte at a time.
+        final InputStream in = new FilterInputStream(new ByteArrayInputStream(encode(records))) {
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                return super.read(b, off, Math.min(len, 1));
+            }
+        };
+        final TouchStreamReader reader = new TouchStreamReader(in);
+        final TouchRecord record = new TouchRecord();
+        for (TouchRecord expected : records) {
+            assertTrue(reader.read(record));
+            assertRecordEquals(expected, record);
+        }
+        assertFalse(reader.read(record));
+    }
+
+    @Test(expected = IOException.class)
+    public void read_rejectsOtherStreams() throws IOException {
+        new TouchStreamReader(new ByteArrayInputStream(new byte[]{'P', 'K', 3, 4, 1}));
+    }
+
+    @Test(expected = IOException.class)
+    public void read_rejectsUnsupportedVersions() throws IOException {
+        final byte[] stream = encode();
+        stream[TouchRecord.MAGIC.length]++;
+        new TouchStreamReader(new ByteArrayInputStream(stream));
+    }
+
+    @Test(expected = EOFException.class)
+    public void read_failsOnTruncatedRecord() throws IOException {
+        final byte[] stream =
+                encode(createRecord(ACTION_MOVE, 0, 16, new int[]{0}, 4, 100f));
+        final TouchStreamReader reader = new TouchStreamReader(
+                new ByteArrayInputStream(Arrays.copyOf(stream, stream.length - 1)));
+        reader.read(new TouchRecord());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void write_rejectsRecordsWithoutPointers() throws IOException {
+        final TouchRecord record = createRecord(ACTION_DOWN, 0, 0, new int[]{0}, 1, 0f);
+        record.pointerCount = 0;
+        encode(record);
+    }
+}